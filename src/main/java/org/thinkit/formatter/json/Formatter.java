@@ -14,6 +14,9 @@
 
 package org.thinkit.formatter.json;
 
+import java.io.IOException;
+import java.nio.CharBuffer;
+
 import lombok.NonNull;
 
 /**
@@ -34,4 +37,57 @@ public interface Formatter {
      * @exception NullPointerException 引数として {@code null} が渡された場合
      */
     public String format(@NonNull final String rawJson);
+
+    /**
+     * 引数として渡された {@code rawJson} に格納された文字列を整形し返却します。
+     * <p>
+     * {@link StringBuilder} などに格納された文字列を {@link String} へ変換せずに整形する場合に使用します。
+     * 既定の実装は {@link #format(String)} メソッドへ委譲します。
+     *
+     * @param rawJson 整形されていないJSON文字列
+     * @return 整形された文字列
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     *
+     * @since 1.0.3
+     */
+    default String format(@NonNull final CharSequence rawJson) {
+        return this.format(rawJson.toString());
+    }
+
+    /**
+     * 引数として渡された文字配列の指定された範囲に格納された文字列を整形し返却します。
+     * <p>
+     * 文字配列はコピーせずに {@link CharBuffer} でラップして {@link #format(CharSequence)} メソッドへ委譲します。
+     *
+     * @param buffer 整形されていないJSON文字列を格納した文字配列
+     * @param offset 開始位置
+     * @param length 文字数
+     * @return 整形された文字列
+     *
+     * @exception NullPointerException      引数として {@code null} が渡された場合
+     * @exception IndexOutOfBoundsException 範囲が文字配列の長さを超える場合
+     *
+     * @since 1.0.3
+     */
+    default String format(@NonNull final char[] buffer, int offset, int length) {
+        return this.format(CharBuffer.wrap(buffer, offset, length));
+    }
+
+    /**
+     * 引数として渡された {@code rawJson} に格納された文字列を整形し、整形結果を {@code output} へ追加します。
+     * <p>
+     * 既定の実装は {@link #format(CharSequence)} メソッドで整形した結果を追加します。
+     *
+     * @param rawJson 整形されていないJSON文字列
+     * @param output  整形結果の出力先
+     *
+     * @throws IOException             出力先への追加に失敗した場合
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     *
+     * @since 1.0.3
+     */
+    default void formatTo(@NonNull final CharSequence rawJson, @NonNull final Appendable output) throws IOException {
+        output.append(this.format(rawJson));
+    }
 }
@@ -14,6 +14,9 @@
 
 package org.thinkit.formatter.json;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 import org.thinkit.common.base.precondition.Preconditions;
 import org.thinkit.formatter.common.Indent;
 import org.thinkit.formatter.common.Indentable;
@@ -33,6 +36,8 @@ import lombok.NonNull;
  * {@link JsonTokenizer} クラスと連動してJSON文字列を生成するアペンダークラスです。
  * <p>
  * 生成した文字列は {@link #toString()} メソッドを使用することで取得することができます。
+ * {@link Builder#withOutput(Appendable)} メソッドで出力先を設定した場合は、生成した文字列を出力先へ直接追加します。
+ * 出力先への追加に失敗した場合は {@link UncheckedIOException} が発生します。
  *
  * @author Kato Shinya
  * @since 1.0.0
@@ -44,7 +49,7 @@ final class JsonAppender {
     /**
      * 整形済みのjson
      */
-    private StringBuilder json;
+    private Appendable json;
 
     /**
      * JSONのトークナイザー
@@ -61,6 +66,29 @@ final class JsonAppender {
      */
     private Line newline;
 
+    /**
+     * 現在の行の桁位置
+     */
+    private int column;
+
+    /**
+     * コンテンツ「JSON既定インデント」の値を保持するクラスです。
+     * <p>
+     * コンテンツは初めて参照された時に一度だけロードされます。 {@code native-image} でビルドする場合はビルド時に初期化されるため、
+     * 実行時にコンテンツをロードする必要はありません。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    private static final class DefaultIndentHolder {
+
+        /**
+         * JSON既定インデント
+         */
+        private static final JsonDefaultIndent DEFAULT_INDENT = ContentInvoker
+                .of(JsonDefaultIndentLoader.newInstance()).invoke();
+    }
+
     /**
      * {@link JsonAppender} クラスのインスタンスを生成する {@link Builder} クラスの新しいインスタンスを生成し返却します。
      *
@@ -88,6 +116,16 @@ final class JsonAppender {
          */
         private int indent = -1;
 
+        /**
+         * 開始時の階層
+         */
+        private int depth;
+
+        /**
+         * 出力先
+         */
+        private Appendable output;
+
         /**
          * デフォルトコンストラクタ
          */
@@ -118,6 +156,28 @@ final class JsonAppender {
             return this;
         }
 
+        /**
+         * 整形を開始する時点の階層を設定します。 JSON文字列の途中から整形する場合に使用します。
+         *
+         * @param depth 開始時の階層
+         */
+        public Builder withDepth(int depth) {
+            this.depth = depth;
+            return this;
+        }
+
+        /**
+         * 整形結果の出力先を設定します。設定しない場合は新しい {@link JsonOutputBuffer} へ出力します。
+         *
+         * @param output 整形結果の出力先
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withOutput(@NonNull Appendable output) {
+            this.output = output;
+            return this;
+        }
+
         /**
          * {@link #register(JsonTokenizer)} メソッドと {@link #withIndent(int)}
          * メソッドで設定された値を基に {@link JsonAppender} クラスの新しいインスタンスを生成し返却します。
@@ -132,18 +192,21 @@ final class JsonAppender {
             Preconditions.requireNonNull(this.jsonTokenizer);
 
             final JsonAppender appender = JsonAppender.newInstance();
-            appender.json = new StringBuilder();
+            appender.json = this.output != null ? this.output : JsonOutputBuffer.newInstance();
             appender.jsonTokenizer = this.jsonTokenizer;
 
             if (this.indent < 0) {
-                final JsonDefaultIndent defaultIndentItem = ContentInvoker.of(JsonDefaultIndentLoader.newInstance())
-                        .invoke();
+                final JsonDefaultIndent defaultIndentItem = DefaultIndentHolder.DEFAULT_INDENT;
                 appender.indent = Indent.builder().withIndent(defaultIndentItem.getIndent())
                         .withIndentType(defaultIndentItem.getIndentType()).build();
             } else {
                 appender.indent = Indent.builder().withIndent(this.indent).build();
             }
 
+            for (int i = 0; i < this.depth; i++) {
+                appender.indent.increment();
+            }
+
             appender.newline = Newline.of(appender.indent);
 
             return appender;
@@ -159,7 +222,32 @@ final class JsonAppender {
      * @return 自分自身のインスタンス
      */
     public JsonAppender appendToken() {
-        this.json.append(this.jsonTokenizer.getToken());
+        return this.append(this.jsonTokenizer.getToken());
+    }
+
+    /**
+     * 引数として渡された {@code text} の指定された範囲を整形せずに文字列へ追加します。
+     * <p>
+     * この {@link JsonAppender#append(CharSequence, int, int)}
+     * メソッドは自分自身のインスタンスを返却するため、後続処理をメソッドチェーンの形式で行うことができます。
+     *
+     * @param text  追加する文字列
+     * @param start 開始位置
+     * @param end   終了位置
+     * @return 自分自身のインスタンス
+     *
+     * @exception UncheckedIOException 出力先への追加に失敗した場合
+     */
+    public JsonAppender append(CharSequence text, int start, int end) {
+
+        try {
+            this.json.append(text, start, end);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.column += end - start;
+
         return this;
     }
 
@@ -172,7 +260,11 @@ final class JsonAppender {
      * @return 自分自身のインスタンス
      */
     public JsonAppender appendNewline() {
-        this.json.append(this.newline.create());
+
+        final String newline = this.newline.create();
+        this.append(newline);
+        this.column = newline.length() - newline.lastIndexOf('\n') - 1;
+
         return this;
     }
 
@@ -185,8 +277,7 @@ final class JsonAppender {
      * @return 自分自身のインスタンス
      */
     public JsonAppender appendSpace() {
-        this.json.append(" ");
-        return this;
+        return this.append(" ");
     }
 
     /**
@@ -215,6 +306,43 @@ final class JsonAppender {
         return this;
     }
 
+    /**
+     * 生成した文字列を保持している {@link JsonOutputBuffer} を返却します。
+     *
+     * @return 生成した文字列を保持している {@link JsonOutputBuffer}
+     *
+     * @exception IllegalStateException {@link Builder#withOutput(Appendable)} メソッドで出力先を設定した場合
+     */
+    public JsonOutputBuffer toBuffer() {
+
+        if (!(this.json instanceof JsonOutputBuffer)) {
+            throw new IllegalStateException("The output is not a JsonOutputBuffer.");
+        }
+
+        return (JsonOutputBuffer) this.json;
+    }
+
+    /**
+     * 引数として渡された {@code text} を出力先へ追加します。
+     *
+     * @param text 追加する文字列
+     * @return 自分自身のインスタンス
+     *
+     * @exception UncheckedIOException 出力先への追加に失敗した場合
+     */
+    public JsonAppender append(CharSequence text) {
+        return this.append(text, 0, text.length());
+    }
+
+    /**
+     * 現在の行の桁位置を返却します。桁位置は最後の改行以降に追加した文字数です。
+     *
+     * @return 現在の行の桁位置
+     */
+    public int getColumn() {
+        return this.column;
+    }
+
     @Override
     public String toString() {
         return this.json.toString();
@@ -0,0 +1,411 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import lombok.NonNull;
+
+/**
+ * UTF-8のJSONをバイト単位で走査し、整形結果を {@link WritableByteChannel} へ書き込むフォーマッタクラスです。
+ * <p>
+ * 整形結果は空白を除いた入力の連続した範囲と、階層毎の改行とインデントの並びで構成されます。 このクラスは入力の {@link ByteBuffer}
+ * の範囲を参照するビューと、階層毎に1度だけ生成した読み取り専用の改行とインデントのバッファのビューを {@link ByteBuffer} の配列にまとめ、
+ * {@link GatheringByteChannel#write(ByteBuffer[], int, int)} メソッドで書き込みます。 そのため整形結果を中間のバッファへコピーすることはありません。
+ * 出力先が {@link GatheringByteChannel} ではない場合は、バッファを1つずつ書き込みます。
+ * <p>
+ * 入力の連続した範囲は改行とインデントを挟むまで1つの範囲にまとめてからビューを割り当てます。 ビューは書き込みの度にプールへ戻して再利用するため、
+ * 同じ {@link ByteBuffer} を繰り返し渡す場合は範囲や改行毎に新しいビューを生成することはありません。
+ * <p>
+ * JSONの構造を表す文字は全てASCII文字であるため、UTF-8の入力を文字へ復号せずに走査することができます。 完結したJSON文書であれば
+ * {@link JsonFormatter#format(String)} メソッドと同じ整形結果を書き込みます。 入力は複数回に分けて渡すことができ、
+ * 文字列の内部を走査中であるか否かと処理中のコンテナの並びは呼び出しをまたいで保持されます。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class JsonChannelFormatter {
+
+    /**
+     * 1回の書き込みでまとめるバッファの数
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * 整形結果の出力先
+     */
+    private WritableByteChannel channel;
+
+    /**
+     * インデント数
+     */
+    private int indent;
+
+    /**
+     * 階層毎の読み取り専用の改行とインデント
+     */
+    private ByteBuffer[] newlines = new ByteBuffer[0];
+
+    /**
+     * 階層毎の改行とインデントのビューのプール
+     */
+    private ByteBuffer[][] newlineViews = new ByteBuffer[0][];
+
+    /**
+     * 階層毎の書き込みを待機している改行とインデントのビューの数
+     */
+    private int[] newlineViewsUsed = new int[0];
+
+    /**
+     * ビューを割り当てる入力
+     */
+    private ByteBuffer input;
+
+    /**
+     * 入力の範囲を参照するビューのプール
+     */
+    private final List<ByteBuffer> inputViews = new ArrayList<>();
+
+    /**
+     * 書き込みを待機している入力のビューの数
+     */
+    private int inputViewsUsed;
+
+    /**
+     * ビューを割り当てていない入力の範囲の開始位置
+     */
+    private int runStart;
+
+    /**
+     * ビューを割り当てていない入力の範囲の終了位置
+     */
+    private int runEnd;
+
+    /**
+     * 書き込みを待機しているバッファ
+     */
+    private final ByteBuffer[] batch = new ByteBuffer[BATCH_SIZE];
+
+    /**
+     * 書き込みを待機しているバッファの数
+     */
+    private int batched;
+
+    /**
+     * 処理中のコンテナの開き括弧の並び
+     */
+    private final StringBuilder containers = new StringBuilder();
+
+    /**
+     * 文字列の内部を走査中であるか否か
+     */
+    private boolean inString;
+
+    /**
+     * 直前の文字がエスケープ文字であるか否か
+     */
+    private boolean escaped;
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonChannelFormatter() {
+    }
+
+    /**
+     * 引数として渡された値を基に {@link JsonChannelFormatter} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param channel 整形結果の出力先
+     * @param indent  インデント数、負数の場合は既定のインデント数
+     * @return {@link JsonChannelFormatter} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static JsonChannelFormatter of(@NonNull WritableByteChannel channel, int indent) {
+
+        final JsonChannelFormatter formatter = new JsonChannelFormatter();
+        formatter.channel = channel;
+        formatter.indent = indent;
+
+        return formatter;
+    }
+
+    /**
+     * 引数として渡されたチェックポイントの走査状態から整形を再開します。
+     *
+     * @param checkpoint チェックポイント
+     * @return 自分自身のインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public JsonChannelFormatter restore(@NonNull JsonCheckpoint checkpoint) {
+        this.containers.setLength(0);
+        this.containers.append(checkpoint.getContainers());
+        this.inString = checkpoint.isInString();
+        this.escaped = checkpoint.isEscaped();
+        return this;
+    }
+
+    /**
+     * 現在の走査状態を保持するチェックポイントを返却します。
+     *
+     * @param source       入力を識別する文字列
+     * @param inputOffset  入力のバイト位置
+     * @param outputOffset 出力のバイト位置
+     * @return チェックポイント
+     */
+    public JsonCheckpoint checkpoint(String source, long inputOffset, long outputOffset) {
+        return JsonCheckpoint.of(source, inputOffset, outputOffset, this.containers.toString(), this.inString,
+                this.escaped);
+    }
+
+    /**
+     * 引数として渡された {@code input} の位置から上限までを整形し、整形結果を出力先へ書き込みます。
+     * <p>
+     * 書き込みは全て完了してから返却するため、呼び出し元は返却後に {@code input} を再利用することができます。 {@code input}
+     * の位置は上限まで進みます。
+     *
+     * @param input 整形されていないJSONのバイト列
+     *
+     * @throws IOException             出力先への書き込みに失敗した場合
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public void format(@NonNull ByteBuffer input) throws IOException {
+
+        if (input != this.input) {
+            this.input = input;
+            this.inputViews.clear();
+        }
+
+        final int limit = input.limit();
+        int start = input.position();
+
+        for (int i = start; i < limit; i++) {
+            final byte b = input.get(i);
+
+            if (this.inString) {
+                if (this.escaped) {
+                    this.escaped = false;
+                } else if (b == '\\') {
+                    this.escaped = true;
+                } else if (b == '"') {
+                    this.inString = false;
+                }
+
+                continue;
+            }
+
+            switch (b) {
+                case ' ':
+                case '\t':
+                case '\n':
+                case '\r':
+                    this.run(start, i);
+                    start = i + 1;
+                    break;
+                case '"':
+                    this.inString = true;
+                    break;
+                case '{':
+                case '[':
+                    this.containers.append((char) b);
+                    this.run(start, i + 1);
+                    this.newline();
+                    start = i + 1;
+                    break;
+                case '}':
+                case ']':
+                    if (this.containers.length() > 0) {
+                        this.containers.setLength(this.containers.length() - 1);
+                    }
+
+                    this.run(start, i);
+                    this.newline();
+                    start = i;
+                    break;
+                case ',':
+                    this.run(start, i + 1);
+                    this.newline();
+                    start = i + 1;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        this.run(start, limit);
+        this.closeRun();
+        input.position(limit);
+        this.flush();
+    }
+
+    /**
+     * 整形結果の末尾の改行を出力先へ書き込みます。
+     *
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public void finish() throws IOException {
+        this.newline();
+        this.flush();
+    }
+
+    /**
+     * 入力の指定された範囲を出力する範囲として追加します。直前の範囲と連続している場合は1つの範囲にまとめます。範囲が空の場合は何もしません。
+     *
+     * @param start 開始位置
+     * @param end   終了位置
+     *
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    private void run(int start, int end) throws IOException {
+
+        if (start >= end) {
+            return;
+        }
+
+        if (this.runStart < this.runEnd && this.runEnd == start) {
+            this.runEnd = end;
+            return;
+        }
+
+        this.closeRun();
+        this.runStart = start;
+        this.runEnd = end;
+    }
+
+    /**
+     * ビューを割り当てていない入力の範囲にプールしたビューを割り当て、書き込みを待機するバッファへ追加します。
+     *
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    private void closeRun() throws IOException {
+
+        if (this.runStart >= this.runEnd) {
+            return;
+        }
+
+        if (this.inputViewsUsed == this.inputViews.size()) {
+            this.inputViews.add(this.input.duplicate());
+        }
+
+        final ByteBuffer view = this.inputViews.get(this.inputViewsUsed++);
+        view.limit(this.runEnd).position(this.runStart);
+
+        this.runStart = this.runEnd = 0;
+        this.add(view);
+    }
+
+    /**
+     * 現在の階層の改行とインデントを書き込みを待機するバッファへ追加します。
+     * <p>
+     * 改行とインデントは {@link JsonAppender#appendNewline()} メソッドが出力する内容を階層毎に1度だけ生成し、読み取り専用のバッファとして共有します。
+     * 書き込みを待機するバッファには、階層毎にプールしたビューを巻き戻して追加します。
+     *
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    private void newline() throws IOException {
+
+        this.closeRun();
+
+        final int depth = this.containers.length();
+
+        if (depth >= this.newlines.length) {
+            final int length = Math.max(depth + 1, this.newlines.length * 2);
+            this.newlines = Arrays.copyOf(this.newlines, length);
+            this.newlineViews = Arrays.copyOf(this.newlineViews, length);
+            this.newlineViewsUsed = Arrays.copyOf(this.newlineViewsUsed, length);
+        }
+
+        if (this.newlines[depth] == null) {
+            final StringBuilder newline = new StringBuilder();
+            JsonAppender.builder().register(JsonTokenizer.of("")).withIndent(this.indent).withDepth(depth)
+                    .withOutput(newline).build().appendNewline();
+
+            final byte[] bytes = newline.toString().getBytes(StandardCharsets.UTF_8);
+            this.newlines[depth] = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip().asReadOnlyBuffer();
+            this.newlineViews[depth] = new ByteBuffer[0];
+        }
+
+        final int used = this.newlineViewsUsed[depth]++;
+
+        if (used == this.newlineViews[depth].length) {
+            this.newlineViews[depth] = Arrays.copyOf(this.newlineViews[depth], Math.max(used + 1, used * 2));
+        }
+
+        if (this.newlineViews[depth][used] == null) {
+            this.newlineViews[depth][used] = this.newlines[depth].duplicate();
+        }
+
+        this.add(this.newlineViews[depth][used].rewind());
+    }
+
+    /**
+     * バッファを書き込みを待機するバッファへ追加します。待機しているバッファが上限に達した場合は出力先へ書き込みます。
+     * <p>
+     * 書き込みによってプールしたビューが再利用可能になるため、書き込みは追加したバッファを含めて行います。
+     *
+     * @param buffer 追加するバッファ
+     *
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    private void add(ByteBuffer buffer) throws IOException {
+
+        this.batch[this.batched++] = buffer;
+
+        if (this.batched == this.batch.length) {
+            this.flush();
+        }
+    }
+
+    /**
+     * 書き込みを待機している全てのバッファを出力先へ書き込みます。
+     *
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    private void flush() throws IOException {
+
+        int offset = 0;
+
+        if (this.channel instanceof GatheringByteChannel) {
+            final GatheringByteChannel gathering = (GatheringByteChannel) this.channel;
+
+            while (offset < this.batched) {
+                gathering.write(this.batch, offset, this.batched - offset);
+
+                while (offset < this.batched && !this.batch[offset].hasRemaining()) {
+                    offset++;
+                }
+            }
+        } else {
+            for (; offset < this.batched; offset++) {
+                while (this.batch[offset].hasRemaining()) {
+                    this.channel.write(this.batch[offset]);
+                }
+            }
+        }
+
+        Arrays.fill(this.batch, 0, this.batched, null);
+        Arrays.fill(this.newlineViewsUsed, 0);
+        this.inputViewsUsed = 0;
+        this.batched = 0;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 巨大なファイルの整形処理を再開するためのチェックポイントを表すクラスです。
+ * <p>
+ * 入力と出力のバイト位置、処理中のコンテナの並び、文字列の内部を走査中であるか否かを保持します。 チェックポイントは一時ファイルへ書き込んだ後に
+ * {@link StandardCopyOption#ATOMIC_MOVE} で置き換えるため、書き込みの途中で処理が停止した場合でも直前のチェックポイントが残ります。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+@ToString
+@EqualsAndHashCode
+final class JsonCheckpoint {
+
+    /**
+     * チェックポイントファイルの識別子
+     */
+    private static final int MAGIC = 0x4A534350;
+
+    /**
+     * チェックポイントファイルの形式のバージョン
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * 一時ファイルの拡張子
+     */
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * 入力を識別する文字列
+     */
+    @Getter
+    private String source;
+
+    /**
+     * 入力のバイト位置
+     */
+    @Getter
+    private long inputOffset;
+
+    /**
+     * 出力のバイト位置
+     */
+    @Getter
+    private long outputOffset;
+
+    /**
+     * 処理中のコンテナの開き括弧の並び
+     */
+    @Getter
+    private String containers;
+
+    /**
+     * 文字列の内部を走査中であるか否か
+     */
+    @Getter
+    private boolean inString;
+
+    /**
+     * 直前の文字がエスケープ文字であるか否か
+     */
+    @Getter
+    private boolean escaped;
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonCheckpoint() {
+    }
+
+    /**
+     * 引数として渡された値を基に {@link JsonCheckpoint} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param source       入力を識別する文字列
+     * @param inputOffset  入力のバイト位置
+     * @param outputOffset 出力のバイト位置
+     * @param containers   処理中のコンテナの開き括弧の並び
+     * @param inString     文字列の内部を走査中であるか否か
+     * @param escaped      直前の文字がエスケープ文字であるか否か
+     * @return {@link JsonCheckpoint} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static JsonCheckpoint of(@NonNull String source, long inputOffset, long outputOffset,
+            @NonNull String containers, boolean inString, boolean escaped) {
+
+        final JsonCheckpoint checkpoint = new JsonCheckpoint();
+        checkpoint.source = source;
+        checkpoint.inputOffset = inputOffset;
+        checkpoint.outputOffset = outputOffset;
+        checkpoint.containers = containers;
+        checkpoint.inString = inString;
+        checkpoint.escaped = escaped;
+
+        return checkpoint;
+    }
+
+    /**
+     * 引数として渡されたファイルからチェックポイントを読み込みます。
+     * <p>
+     * 識別子や形式のバージョンが一致しないファイル、途中で途切れたファイル、値が不正なファイルは読み込めないチェックポイントとして空の
+     * {@link Optional} を返却します。 呼び出し元は入力が変更された場合と同様に先頭から処理をやり直すため、破損したチェックポイントファイルを手動で削除する必要はありません。
+     *
+     * @param path チェックポイントファイル
+     * @return チェックポイント、ファイルが存在しない場合や読み込めないチェックポイントの場合は空の {@link Optional}
+     *
+     * @throws IOException             ファイルの読み込みに失敗した場合
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static Optional<JsonCheckpoint> read(@NonNull Path path) throws IOException {
+
+        final byte[] bytes;
+
+        try {
+            bytes = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return Optional.empty();
+            }
+
+            final JsonCheckpoint checkpoint = new JsonCheckpoint();
+            checkpoint.source = input.readUTF();
+            checkpoint.inputOffset = input.readLong();
+            checkpoint.outputOffset = input.readLong();
+
+            final int containers = input.readInt();
+
+            if (checkpoint.inputOffset < 0 || checkpoint.outputOffset < 0 || containers < 0
+                    || containers > input.available()) {
+                return Optional.empty();
+            }
+
+            checkpoint.containers = new String(input.readNBytes(containers), StandardCharsets.US_ASCII);
+            checkpoint.inString = input.readBoolean();
+            checkpoint.escaped = input.readBoolean();
+
+            if (!checkpoint.containers.chars().allMatch(c -> c == '{' || c == '[')) {
+                return Optional.empty();
+            }
+
+            return Optional.of(checkpoint);
+        } catch (EOFException | UTFDataFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * チェックポイントを引数として渡されたファイルへ書き込みます。
+     * <p>
+     * 同じディレクトリの一時ファイルへ書き込み、ストレージへの反映を待った後に既存のチェックポイントファイルと置き換えます。
+     *
+     * @param path チェックポイントファイル
+     *
+     * @throws IOException             ファイルの書き込みに失敗した場合
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public void write(@NonNull Path path) throws IOException {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(this.source);
+            output.writeLong(this.inputOffset);
+            output.writeLong(this.outputOffset);
+            output.writeInt(this.containers.length());
+            output.writeBytes(this.containers);
+            output.writeBoolean(this.inString);
+            output.writeBoolean(this.escaped);
+        }
+
+        final Path temporary = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.thinkit.formatter.common.Tokenizable;
+import org.thinkit.formatter.json.catalog.Brace;
+import org.thinkit.formatter.json.catalog.Bracket;
+import org.thinkit.formatter.json.catalog.Delimiter;
+
+import lombok.NonNull;
+
+/**
+ * 最大行幅に収まるオブジェクトと配列を1行にまとめて出力するレイアウトクラスです。
+ * <p>
+ * 開き括弧を読み込む度に、対応する閉じ括弧までのトークンを先読みして1行で出力した場合の幅を求めます。
+ * 先読みは現在の行の残り幅を超えた時点で打ち切るため、保持するトークンは最大行幅の範囲に限られ、構文木を構築する必要はありません。
+ * 1行に収まらない場合は {@link JsonFormatter} クラスと同じ規則で改行し、先読みしたトークンを順に処理します。
+ * ただし1行に収まらない配列でも、オブジェクトや配列ではない要素は最大行幅に収まる限り同じ行に詰めて出力します。
+ * <p>
+ * 同じ行に出力する要素の間では、カンマの後に空白を1つ挿入します。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class JsonCompactLayout {
+
+    /**
+     * カンマの後に挿入する空白
+     */
+    private static final String SPACE = " ";
+
+    /**
+     * 処理済みの先読みトークンを破棄する閾値
+     */
+    private static final int COMPACTION_THRESHOLD = 256;
+
+    /**
+     * JSONのトークナイザー
+     */
+    private Tokenizable tokenizer;
+
+    /**
+     * 整形結果を追加するアペンダー
+     */
+    private JsonAppender appender;
+
+    /**
+     * 最大行幅
+     */
+    private int lineWidth;
+
+    /**
+     * 先読みしたトークンと小文字のトークン
+     */
+    private final List<String[]> lookahead = new ArrayList<>();
+
+    /**
+     * 先読みしたトークンのうち次に処理するトークンの位置
+     */
+    private int head;
+
+    /**
+     * 複数行で出力中のコンテナの開き括弧
+     */
+    private final StringBuilder containers = new StringBuilder();
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonCompactLayout() {
+    }
+
+    /**
+     * 引数として渡された値を基に {@link JsonCompactLayout} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param tokenizer JSONのトークナイザー
+     * @param appender  整形結果を追加するアペンダー
+     * @param lineWidth 最大行幅
+     * @return {@link JsonCompactLayout} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static JsonCompactLayout of(@NonNull Tokenizable tokenizer, @NonNull JsonAppender appender,
+            int lineWidth) {
+
+        final JsonCompactLayout layout = new JsonCompactLayout();
+        layout.tokenizer = tokenizer;
+        layout.appender = appender;
+        layout.lineWidth = lineWidth;
+
+        return layout;
+    }
+
+    /**
+     * 全てのトークンを整形しアペンダーへ追加します。末尾の改行は追加しません。
+     */
+    public void appendTokens() {
+        for (String[] token = this.poll(); token != null; token = this.poll()) {
+            this.append(token);
+        }
+    }
+
+    /**
+     * 次のトークンを整形しアペンダーへ追加します。
+     *
+     * @return トークンを追加した場合は {@code true}、全てのトークンを処理済みの場合は {@code false}
+     */
+    public boolean appendNext() {
+
+        final String[] token = this.poll();
+
+        if (token == null) {
+            return false;
+        }
+
+        this.append(token);
+
+        return true;
+    }
+
+    /**
+     * 引数として渡されたトークンを整形しアペンダーへ追加します。
+     *
+     * @param token トークンと小文字のトークン
+     */
+    private void append(String[] token) {
+
+        final String lowercaseToken = token[1];
+
+        if (isStart(lowercaseToken)) {
+            if (!this.appendInline(token)) {
+                this.containers.append(lowercaseToken);
+                this.appender.append(token[0]).incrementIndent().appendNewline();
+            }
+        } else if (isEnd(lowercaseToken)) {
+            if (this.containers.length() > 0) {
+                this.containers.setLength(this.containers.length() - 1);
+            }
+
+            this.appender.decrementIndent().appendNewline().append(token[0]);
+        } else if (Delimiter.COMMA.getTag().equals(lowercaseToken)) {
+            this.appender.append(token[0]);
+
+            if (this.fitsNextElement()) {
+                this.appender.append(SPACE);
+            } else {
+                this.appender.appendNewline();
+            }
+        } else {
+            this.appender.append(token[0]);
+        }
+    }
+
+    /**
+     * 引数として渡された開き括弧から対応する閉じ括弧までを先読みし、現在の行の残り幅に収まる場合は1行で出力します。
+     * <p>
+     * 閉じ括弧の直後にカンマが続く場合は、カンマを含めた幅で判定します。
+     *
+     * @param start 開き括弧のトークン
+     * @return 1行で出力した場合は {@code true}、それ以外は {@code false}
+     */
+    private boolean appendInline(String[] start) {
+
+        final int remaining = this.lineWidth - this.appender.getColumn();
+        int width = start[0].length();
+        int depth = 1;
+        int count = 0;
+
+        while (depth > 0) {
+            final String[] token = this.peek(count++);
+
+            if (token == null) {
+                return false;
+            }
+
+            if (isStart(token[1])) {
+                depth++;
+            } else if (isEnd(token[1])) {
+                depth--;
+            } else if (Delimiter.COMMA.getTag().equals(token[1])) {
+                width += SPACE.length();
+            }
+
+            width += token[0].length();
+
+            if (width > remaining) {
+                return false;
+            }
+        }
+
+        final String[] next = this.peek(count);
+
+        if (next != null && Delimiter.COMMA.getTag().equals(next[1]) && width + next[0].length() > remaining) {
+            return false;
+        }
+
+        this.appender.append(start[0]);
+
+        for (int i = 0; i < count; i++) {
+            final String[] token = this.poll();
+            this.appender.append(token[0]);
+
+            if (Delimiter.COMMA.getTag().equals(token[1])) {
+                this.appender.append(SPACE);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * 複数行で出力中の配列において、カンマの次の要素がオブジェクトや配列ではなく現在の行の残り幅に収まるかを判定します。
+     *
+     * @return 次の要素を同じ行に出力できる場合は {@code true}、それ以外は {@code false}
+     */
+    private boolean fitsNextElement() {
+
+        final int last = this.containers.length() - 1;
+
+        if (last < 0 || this.containers.charAt(last) != Bracket.START.getTag().charAt(0)) {
+            return false;
+        }
+
+        final String[] element = this.peek(0);
+
+        if (element == null || isStart(element[1]) || isEnd(element[1])) {
+            return false;
+        }
+
+        final String[] next = this.peek(1);
+        int width = SPACE.length() + element[0].length();
+
+        if (next != null && Delimiter.COMMA.getTag().equals(next[1])) {
+            width += next[0].length();
+        }
+
+        return this.appender.getColumn() + width <= this.lineWidth;
+    }
+
+    /**
+     * 次に処理するトークンを取り出します。
+     *
+     * @return 次に処理するトークン、全てのトークンを処理した場合は {@code null}
+     */
+    private String[] poll() {
+
+        final String[] token = this.peek(0);
+
+        if (token == null) {
+            return null;
+        }
+
+        if (++this.head == this.lookahead.size()) {
+            this.lookahead.clear();
+            this.head = 0;
+        } else if (this.head >= COMPACTION_THRESHOLD) {
+            this.lookahead.subList(0, this.head).clear();
+            this.head = 0;
+        }
+
+        return token;
+    }
+
+    /**
+     * 次に処理するトークンから数えて指定された位置にあるトークンを、必要な分だけ先読みして返却します。空白のトークンは読み飛ばします。
+     *
+     * @param index 次に処理するトークンからの位置
+     * @return 指定された位置にあるトークン、入力の終端を超える場合は {@code null}
+     */
+    private String[] peek(int index) {
+
+        while (this.lookahead.size() - this.head <= index) {
+            if (!this.tokenizer.next()) {
+                return null;
+            }
+
+            final String token = this.tokenizer.getToken();
+
+            if (!this.tokenizer.isWhitespace(token)) {
+                this.lookahead.add(new String[] { token, this.tokenizer.getLowercaseToken() });
+            }
+        }
+
+        return this.lookahead.get(this.head + index);
+    }
+
+    /**
+     * 引数として渡されたトークンが開き括弧であるかを判定します。
+     *
+     * @param lowercaseToken 小文字のトークン
+     * @return 開き括弧である場合は {@code true}、それ以外は {@code false}
+     */
+    private static boolean isStart(String lowercaseToken) {
+        return Brace.START.getTag().equals(lowercaseToken) || Bracket.START.getTag().equals(lowercaseToken);
+    }
+
+    /**
+     * 引数として渡されたトークンが閉じ括弧であるかを判定します。
+     *
+     * @param lowercaseToken 小文字のトークン
+     * @return 閉じ括弧である場合は {@code true}、それ以外は {@code false}
+     */
+    private static boolean isEnd(String lowercaseToken) {
+        return Brace.END.getTag().equals(lowercaseToken) || Bracket.END.getTag().equals(lowercaseToken);
+    }
+}
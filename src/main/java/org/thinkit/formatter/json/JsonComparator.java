@@ -0,0 +1,458 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import org.thinkit.formatter.json.catalog.Brace;
+import org.thinkit.formatter.json.catalog.Bracket;
+import org.thinkit.formatter.json.catalog.Delimiter;
+import org.thinkit.formatter.json.catalog.Quotation;
+
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 2つのJSON文字列を整形せずに比較し、空白以外の差異を検出するクラスです。
+ * <p>
+ * 2つの {@link JsonTokenizer} を同時に進めながら空白以外のトークンを比較するため、整形結果を生成することなく、
+ * 最初の差異を検出した時点で比較を終了することができます。 差異の位置は {@code $.nodes[1].id} の形式のパスで表します。
+ * <p>
+ * オブジェクトのキーの順序と数値の表記は区別して比較します。 {@link #findDifferences(CharSequence, CharSequence)}
+ * メソッドでは、差異のある値を読み飛ばして比較を続けることで全ての差異を検出します。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+@ToString
+@EqualsAndHashCode
+@NoArgsConstructor(staticName = "newInstance")
+public final class JsonComparator {
+
+    /**
+     * コロン
+     */
+    private static final String COLON = ":";
+
+    /**
+     * 空白を除いたトークンを順に読み込むカーソルクラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    private static final class Cursor {
+
+        /**
+         * JSONのトークナイザー
+         */
+        private final JsonTokenizer tokenizer;
+
+        /**
+         * 現在のトークン、終端に達した場合は {@code null}
+         */
+        private String token;
+
+        /**
+         * 現在のトークンの開始位置
+         */
+        private int offset;
+
+        /**
+         * コンストラクタ
+         *
+         * @param json JSON文字列
+         */
+        private Cursor(CharSequence json) {
+            this.tokenizer = JsonTokenizer.of(json, 0, json.length());
+        }
+
+        /**
+         * 空白ではない次のトークンを読み込みます。
+         *
+         * @return トークンを読み込んだ場合は {@code true}、終端に達した場合は {@code false}
+         */
+        private boolean next() {
+
+            while (this.tokenizer.next()) {
+                if (!this.tokenizer.isWhitespace(this.tokenizer.getToken())) {
+                    this.token = this.tokenizer.getToken();
+                    this.offset = this.tokenizer.getStart();
+                    return true;
+                }
+            }
+
+            this.token = null;
+            this.offset = this.tokenizer.getEnd();
+
+            return false;
+        }
+    }
+
+    /**
+     * 比較中のコンテナを表すクラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    private static final class Container {
+
+        /**
+         * オブジェクトであるか否か
+         */
+        private final boolean object;
+
+        /**
+         * 次のトークンがキーであるか否か
+         */
+        private boolean expectKey;
+
+        /**
+         * 現在のキー
+         */
+        private String key;
+
+        /**
+         * 現在の要素の位置
+         */
+        private int index;
+
+        /**
+         * コンストラクタ
+         *
+         * @param object オブジェクトであるか否か
+         */
+        private Container(boolean object) {
+            this.object = object;
+            this.expectKey = object;
+        }
+    }
+
+    /**
+     * 2つのJSON文字列が空白を除いて一致するかを判定します。
+     *
+     * @param left  比較元のJSON文字列
+     * @param right 比較先のJSON文字列
+     * @return 一致する場合は {@code true}、それ以外は {@code false}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public boolean isEquivalent(@NonNull CharSequence left, @NonNull CharSequence right) {
+        return this.findFirstDifference(left, right).isEmpty();
+    }
+
+    /**
+     * 2つのJSON文字列を比較し、最初の差異を返却します。 差異を検出した時点で比較を終了します。
+     * <p>
+     * 返却する差異の値は、差異を検出したトークンです。 いずれかのJSON文字列が終端に達した場合、その値は {@code ""} です。
+     *
+     * @param left  比較元のJSON文字列
+     * @param right 比較先のJSON文字列
+     * @return 最初の差異、一致する場合は {@link Optional#empty()}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public Optional<JsonDifference> findFirstDifference(@NonNull CharSequence left, @NonNull CharSequence right) {
+        return compare(left, right, false).stream().findFirst();
+    }
+
+    /**
+     * 2つのJSON文字列を比較し、全ての差異を返却します。
+     * <p>
+     * 差異のある値は空白を除いた形式で返却します。 オブジェクトのキーが異なる場合はキーと値の組を、
+     * コンテナの要素数が異なる場合はコンテナの残りの要素を読み飛ばして比較を続けます。
+     *
+     * @param left  比較元のJSON文字列
+     * @param right 比較先のJSON文字列
+     * @return 全ての差異、一致する場合は空のリスト
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public List<JsonDifference> findDifferences(@NonNull CharSequence left, @NonNull CharSequence right) {
+        return compare(left, right, true);
+    }
+
+    /**
+     * 2つのJSON文字列を比較し差異を返却します。
+     *
+     * @param left  比較元のJSON文字列
+     * @param right 比較先のJSON文字列
+     * @param all   全ての差異を検出する場合は {@code true}、最初の差異で終了する場合は {@code false}
+     * @return 検出した差異
+     */
+    private static List<JsonDifference> compare(CharSequence left, CharSequence right, boolean all) {
+
+        final Cursor leftCursor = new Cursor(left);
+        final Cursor rightCursor = new Cursor(right);
+        final Deque<Container> containers = new ArrayDeque<>();
+        final List<JsonDifference> differences = new ArrayList<>();
+        boolean expectValue = true;
+
+        while (true) {
+            final boolean hasLeft = leftCursor.next();
+            final boolean hasRight = rightCursor.next();
+
+            if (!hasLeft && !hasRight) {
+                break;
+            }
+
+            if (hasLeft && hasRight && leftCursor.token.equals(rightCursor.token)) {
+                expectValue = advance(containers, leftCursor.token);
+                continue;
+            }
+
+            final int leftOffset = leftCursor.offset;
+            final int rightOffset = rightCursor.offset;
+            final Container container = containers.peek();
+
+            if (!all || !hasLeft || !hasRight) {
+                final String key = container != null && container.expectKey
+                        ? hasLeft ? leftCursor.token : rightCursor.token
+                        : null;
+
+                differences.add(JsonDifference.of(toPath(containers, key), leftOffset, rightOffset,
+                        hasLeft ? leftCursor.token : "", hasRight ? rightCursor.token : ""));
+                break;
+            }
+
+            final StringBuilder leftValue = new StringBuilder();
+            final StringBuilder rightValue = new StringBuilder();
+
+            if (container != null && container.expectKey && isString(leftCursor.token)
+                    && isString(rightCursor.token)) {
+                final String path = toPath(containers, leftCursor.token);
+                skipPair(leftCursor, leftValue);
+                skipPair(rightCursor, rightValue);
+                container.expectKey = false;
+                expectValue = false;
+                differences.add(JsonDifference.of(path, leftOffset, rightOffset, leftValue.toString(),
+                        rightValue.toString()));
+            } else if (expectValue && !isEnd(leftCursor.token) && !isEnd(rightCursor.token)) {
+                final String path = toPath(containers, null);
+                skipValue(leftCursor, leftValue);
+                skipValue(rightCursor, rightValue);
+                expectValue = false;
+                differences.add(JsonDifference.of(path, leftOffset, rightOffset, leftValue.toString(),
+                        rightValue.toString()));
+            } else {
+                skipContainer(leftCursor, leftValue);
+                skipContainer(rightCursor, rightValue);
+
+                if (!containers.isEmpty()) {
+                    containers.pop();
+                }
+
+                expectValue = false;
+                differences.add(JsonDifference.of(toPath(containers, null), leftOffset, rightOffset,
+                        leftValue.toString(), rightValue.toString()));
+            }
+        }
+
+        return differences;
+    }
+
+    /**
+     * 一致したトークンを基にパスの状態を更新します。
+     *
+     * @param containers 比較中のコンテナ
+     * @param token      一致したトークン
+     * @return 次のトークンが値の位置にある場合は {@code true}、それ以外は {@code false}
+     */
+    private static boolean advance(Deque<Container> containers, String token) {
+
+        final Container container = containers.peek();
+
+        if (Brace.START.getTag().equals(token)) {
+            containers.push(new Container(true));
+            return false;
+        } else if (Bracket.START.getTag().equals(token)) {
+            containers.push(new Container(false));
+            return true;
+        } else if (isEnd(token)) {
+            if (container != null) {
+                containers.pop();
+            }
+            return false;
+        } else if (Delimiter.COMMA.getTag().equals(token)) {
+            if (container == null) {
+                return false;
+            }
+
+            if (container.object) {
+                container.expectKey = true;
+                return false;
+            }
+
+            container.index++;
+            return true;
+        } else if (COLON.equals(token)) {
+            return true;
+        }
+
+        if (container != null && container.expectKey) {
+            container.key = token;
+            container.expectKey = false;
+        }
+
+        return false;
+    }
+
+    /**
+     * 比較中のコンテナから現在位置のパスを生成します。
+     *
+     * @param containers 比較中のコンテナ
+     * @param key        現在のキーの代わりに使用するキー、現在のキーを使用する場合は {@code null}
+     * @return 現在位置のパス
+     */
+    private static String toPath(Deque<Container> containers, String key) {
+
+        final StringBuilder path = new StringBuilder("$");
+        final Iterator<Container> iterator = containers.descendingIterator();
+
+        while (iterator.hasNext()) {
+            final Container container = iterator.next();
+
+            if (!container.object) {
+                path.append('[').append(container.index).append(']');
+                continue;
+            }
+
+            final String name = iterator.hasNext() || key == null ? container.key : key;
+
+            if (name != null) {
+                path.append('.').append(unquote(name));
+            }
+        }
+
+        return path.toString();
+    }
+
+    /**
+     * 現在のトークンから始まる値を読み飛ばします。
+     *
+     * @param cursor 読み飛ばすカーソル
+     * @param value  読み飛ばした値の出力先
+     */
+    private static void skipValue(Cursor cursor, StringBuilder value) {
+
+        value.append(cursor.token);
+
+        if (isStart(cursor.token)) {
+            skip(cursor, value, 1);
+        }
+    }
+
+    /**
+     * 現在のトークンから始まるキーと値の組を読み飛ばします。
+     *
+     * @param cursor 読み飛ばすカーソル
+     * @param value  読み飛ばしたキーと値の出力先
+     */
+    private static void skipPair(Cursor cursor, StringBuilder value) {
+
+        value.append(cursor.token);
+
+        if (cursor.next() && COLON.equals(cursor.token)) {
+            value.append(cursor.token);
+
+            if (cursor.next()) {
+                skipValue(cursor, value);
+            }
+        }
+    }
+
+    /**
+     * 現在のトークンから比較中のコンテナの終端までを読み飛ばします。
+     *
+     * @param cursor 読み飛ばすカーソル
+     * @param value  読み飛ばしたトークンの出力先
+     */
+    private static void skipContainer(Cursor cursor, StringBuilder value) {
+
+        value.append(cursor.token);
+
+        final int depth = isStart(cursor.token) ? 2 : isEnd(cursor.token) ? 0 : 1;
+
+        if (depth > 0) {
+            skip(cursor, value, depth);
+        }
+    }
+
+    /**
+     * 指定された階層の数だけコンテナが閉じられるまでトークンを読み飛ばします。
+     *
+     * @param cursor 読み飛ばすカーソル
+     * @param value  読み飛ばしたトークンの出力先
+     * @param depth  閉じられていないコンテナの数
+     */
+    private static void skip(Cursor cursor, StringBuilder value, int depth) {
+
+        while (depth > 0 && cursor.next()) {
+            value.append(cursor.token);
+
+            if (isStart(cursor.token)) {
+                depth++;
+            } else if (isEnd(cursor.token)) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * 引数として渡されたトークンが開き括弧であるかを判定します。
+     *
+     * @param token トークン
+     * @return 開き括弧である場合は {@code true}、それ以外は {@code false}
+     */
+    private static boolean isStart(String token) {
+        return Brace.START.getTag().equals(token) || Bracket.START.getTag().equals(token);
+    }
+
+    /**
+     * 引数として渡されたトークンが閉じ括弧であるかを判定します。
+     *
+     * @param token トークン
+     * @return 閉じ括弧である場合は {@code true}、それ以外は {@code false}
+     */
+    private static boolean isEnd(String token) {
+        return Brace.END.getTag().equals(token) || Bracket.END.getTag().equals(token);
+    }
+
+    /**
+     * 引数として渡されたトークンが文字列であるかを判定します。
+     *
+     * @param token トークン
+     * @return 文字列である場合は {@code true}、それ以外は {@code false}
+     */
+    private static boolean isString(String token) {
+        return token.startsWith(Quotation.DOUBLE_QUOTATION.getTag());
+    }
+
+    /**
+     * 引数として渡されたキーの前後のダブルクォーテーションを取り除きます。
+     *
+     * @param key キー
+     * @return ダブルクォーテーションを取り除いたキー
+     */
+    private static String unquote(String key) {
+        return isString(key) && key.length() >= 2 ? key.substring(1, key.length() - 1) : key;
+    }
+}
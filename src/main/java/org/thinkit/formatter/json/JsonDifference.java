@@ -0,0 +1,97 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * {@link JsonComparator} クラスが検出した2つのJSON文字列の差異を表すクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+@ToString
+@EqualsAndHashCode
+public final class JsonDifference {
+
+    /**
+     * 差異が存在する位置のパス
+     */
+    @Getter
+    private String path;
+
+    /**
+     * 比較元のJSON文字列における差異の開始位置
+     */
+    @Getter
+    private int leftOffset;
+
+    /**
+     * 比較先のJSON文字列における差異の開始位置
+     */
+    @Getter
+    private int rightOffset;
+
+    /**
+     * 比較元のJSON文字列における差異のある値
+     */
+    @Getter
+    private String leftValue;
+
+    /**
+     * 比較先のJSON文字列における差異のある値
+     */
+    @Getter
+    private String rightValue;
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonDifference() {
+    }
+
+    /**
+     * 引数として渡された値を基に {@link JsonDifference} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param path        差異が存在する位置のパス
+     * @param leftOffset  比較元のJSON文字列における差異の開始位置
+     * @param rightOffset 比較先のJSON文字列における差異の開始位置
+     * @param leftValue   比較元のJSON文字列における差異のある値
+     * @param rightValue  比較先のJSON文字列における差異のある値
+     * @return {@link JsonDifference} クラスの新しいインスタンス
+     */
+    static JsonDifference of(String path, int leftOffset, int rightOffset, String leftValue, String rightValue) {
+
+        final JsonDifference difference = new JsonDifference();
+        difference.path = path;
+        difference.leftOffset = leftOffset;
+        difference.rightOffset = rightOffset;
+        difference.leftValue = leftValue;
+        difference.rightValue = rightValue;
+
+        return difference;
+    }
+
+    /**
+     * 差異を {@code パス: 比較元の値 -> 比較先の値} の形式で表した文字列を返却します。
+     *
+     * @return 差異を表す文字列
+     */
+    public String describe() {
+        return String.format("%s: %s -> %s", this.path, this.leftValue, this.rightValue);
+    }
+}
@@ -0,0 +1,764 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.thinkit.common.base.precondition.Preconditions;
+
+import lombok.NonNull;
+
+/**
+ * 追記され続けるNDJSONファイルを監視し、新たに追記されたレコードのみを整形するクラスです。
+ * <p>
+ * 最後に読み込んだバイト位置と改行で終わっていないレコードの途中までの内容を保持し、ファイルの変更を検知する度に
+ * {@link FileChannel} の位置指定読み込みで追記された範囲だけを読み込みます。 ファイルの変更は {@link WatchService}
+ * で待機するため、ファイルが更新されない間はCPUをほとんど使用しません。 {@link WatchService}
+ * が変更を通知しないファイルシステムに備え、一定間隔でのポーリングも併用します。
+ * <p>
+ * ファイルが切り詰められた場合は先頭から、ログローテーションで別のファイルに置き換えられた場合は旧ファイルの残りを読み込んだ後に
+ * 新しいファイルの先頭から読み込みを再開します。 いずれの場合も旧ファイルの末尾に改行で終わっていないレコードが残っている場合は、
+ * 以降に追記されることがないため1つのレコードとして出力します。
+ * <p>
+ * 改行で終わっていないレコードは {@link Builder#withMaxRecordBytes(int)} メソッドで設定したバイト数まで保持し、
+ * 上限を超えたレコードはバイナリファイルや暴走した書き込みとみなして読み捨て、次の改行から読み込みを再開します。
+ * <p>
+ * {@link Builder#withCheckpoint(Path)} メソッドでチェックポイントファイルを設定した場合は、出力を反映した後に出力済みのレコードの終端位置を
+ * {@link JsonCheckpoint} として書き込み、再起動時に同じファイルであればその位置から読み込みを再開します。 チェックポイントは前回から一定のバイト数を
+ * 読み進めた場合、または一定の時間が経過した場合にのみ書き込み、監視の終了時には必ず書き込みます。 ファイルはファイルシステムのファイルキーで識別し、
+ * ファイルキーを提供しないファイルシステムでは作成日時で識別します。 出力先は切り詰めることができないため、最後のチェックポイント以降に出力されたレコードは
+ * 再起動後に再度出力されます。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class JsonFileFollower implements Closeable {
+
+    /**
+     * 改行コード
+     */
+    private static final byte LINE_FEED = '\n';
+
+    /**
+     * 復帰コード
+     */
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    /**
+     * 監視対象のファイル
+     */
+    private Path path;
+
+    /**
+     * レコードのフォーマッタ
+     */
+    private Formatter formatter;
+
+    /**
+     * ポーリング間隔
+     */
+    private Duration pollInterval;
+
+    /**
+     * チェックポイントファイル、チェックポイントを書き込まない場合は {@code null}
+     */
+    private Path checkpoint;
+
+    /**
+     * チェックポイントを書き込む読み込みバイト数の間隔
+     */
+    private long checkpointInterval;
+
+    /**
+     * チェックポイントを書き込む時間の間隔
+     */
+    private Duration checkpointPeriod;
+
+    /**
+     * 最後に書き込んだチェックポイントのファイルの識別子
+     */
+    private String checkpointedSource;
+
+    /**
+     * 最後に書き込んだチェックポイントの読み込み位置
+     */
+    private long checkpointedOffset;
+
+    /**
+     * 最後にチェックポイントを書き込んだ時刻（ナノ秒）
+     */
+    private long checkpointedAt;
+
+    /**
+     * 読み込み用のウィンドウ
+     */
+    private ByteBuffer window;
+
+    /**
+     * 読み込み中のファイルのチャネル
+     */
+    private FileChannel channel;
+
+    /**
+     * 読み込み中のファイルを識別するキー
+     */
+    private Object fileKey;
+
+    /**
+     * チェックポイントに記録する読み込み中のファイルの識別子
+     */
+    private String source;
+
+    /**
+     * 最後に読み込んだバイト位置
+     */
+    private long offset;
+
+    /**
+     * 改行で終わっていないレコードの途中までの内容
+     */
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+
+    /**
+     * 最初の改行までの内容を読み捨てるか否か
+     */
+    private boolean skipToNewline;
+
+    /**
+     * 1レコードあたりの最大バイト数
+     */
+    private int maxRecordBytes;
+
+    /**
+     * 既存の内容を読み飛ばすか否か
+     */
+    private boolean fromEnd;
+
+    /**
+     * 監視を終了したか否か
+     */
+    private volatile boolean closed;
+
+    /**
+     * {@link #follow(Appendable)} メソッドが実行中か否か
+     */
+    private boolean following;
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonFileFollower() {
+    }
+
+    /**
+     * {@link JsonFileFollower} クラスのインスタンスを生成する {@link Builder} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @return {@link Builder} クラスの新しいインスタンス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link JsonFileFollower} クラスのインスタンスを生成する処理を定義したビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    public static class Builder {
+
+        /**
+         * 監視対象のファイル
+         */
+        private Path path;
+
+        /**
+         * レコードのフォーマッタ
+         */
+        private Formatter formatter = JsonFormatter.newInstance();
+
+        /**
+         * ポーリング間隔
+         */
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        /**
+         * 読み込み用のウィンドウのサイズ
+         */
+        private int windowSize = 64 * 1024;
+
+        /**
+         * 1レコードあたりの最大バイト数
+         */
+        private int maxRecordBytes = 64 * 1024 * 1024;
+
+        /**
+         * チェックポイントファイル
+         */
+        private Path checkpoint;
+
+        /**
+         * チェックポイントを書き込む読み込みバイト数の間隔
+         */
+        private long checkpointInterval = 1024 * 1024;
+
+        /**
+         * チェックポイントを書き込む時間の間隔
+         */
+        private Duration checkpointPeriod = Duration.ofSeconds(5);
+
+        /**
+         * 既存の内容を読み飛ばすか否か
+         */
+        private boolean fromEnd = true;
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * 監視対象のファイルを設定します。
+         *
+         * @param path 監視対象のファイル
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withPath(@NonNull Path path) {
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * レコードのフォーマッタを設定します。
+         *
+         * @param formatter レコードのフォーマッタ
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withFormatter(@NonNull Formatter formatter) {
+            this.formatter = formatter;
+            return this;
+        }
+
+        /**
+         * 変更通知がない場合にファイルを確認する間隔を設定します。
+         *
+         * @param pollInterval ポーリング間隔
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withPollInterval(@NonNull Duration pollInterval) {
+            this.pollInterval = pollInterval;
+            return this;
+        }
+
+        /**
+         * 1回の読み込みで使用するウィンドウのバイト数を設定します。
+         *
+         * @param windowSize ウィンドウのバイト数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * 1レコードあたりの最大バイト数を設定します。 改行までのバイト数が上限を超えたレコードは出力せずに読み捨てます。
+         *
+         * @param maxRecordBytes 1レコードあたりの最大バイト数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withMaxRecordBytes(int maxRecordBytes) {
+            this.maxRecordBytes = maxRecordBytes;
+            return this;
+        }
+
+        /**
+         * 監視開始時にファイルの既存の内容を読み飛ばすか否かを設定します。
+         *
+         * @param fromEnd 既存の内容を読み飛ばす場合は {@code true}、先頭から整形する場合は {@code false}
+         * @return 自分自身のインスタンス
+         */
+        public Builder withFromEnd(boolean fromEnd) {
+            this.fromEnd = fromEnd;
+            return this;
+        }
+
+        /**
+         * 出力済みのレコードの終端位置を書き込むチェックポイントファイルを設定します。
+         *
+         * @param checkpoint チェックポイントファイル
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withCheckpoint(@NonNull Path checkpoint) {
+            this.checkpoint = checkpoint;
+            return this;
+        }
+
+        /**
+         * 前回のチェックポイントから次のチェックポイントを書き込むまでに読み進める最小のバイト数を設定します。
+         *
+         * @param checkpointInterval チェックポイントを書き込む読み込みバイト数の間隔
+         * @return 自分自身のインスタンス
+         */
+        public Builder withCheckpointInterval(long checkpointInterval) {
+            this.checkpointInterval = checkpointInterval;
+            return this;
+        }
+
+        /**
+         * 読み進めたバイト数が間隔に満たない場合でも、前回のチェックポイントから次のチェックポイントを書き込むまでの時間を設定します。
+         *
+         * @param checkpointPeriod チェックポイントを書き込む時間の間隔
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withCheckpointPeriod(@NonNull Duration checkpointPeriod) {
+            this.checkpointPeriod = checkpointPeriod;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link JsonFileFollower} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link JsonFileFollower} クラスの新しいインスタンス
+         */
+        public JsonFileFollower build() {
+            Preconditions.requireNonNull(this.path);
+
+            if (this.windowSize < 1) {
+                throw new IllegalArgumentException(String.format("Invalid window size: %d", this.windowSize));
+            }
+
+            if (this.maxRecordBytes < 1) {
+                throw new IllegalArgumentException(String.format("Invalid max record bytes: %d", this.maxRecordBytes));
+            }
+
+            if (this.checkpointInterval < 1) {
+                throw new IllegalArgumentException(
+                        String.format("Invalid checkpoint interval: %d", this.checkpointInterval));
+            }
+
+            final JsonFileFollower follower = new JsonFileFollower();
+            follower.path = this.path;
+            follower.formatter = this.formatter;
+            follower.pollInterval = this.pollInterval;
+            follower.window = ByteBuffer.allocate(this.windowSize);
+            follower.maxRecordBytes = this.maxRecordBytes;
+            follower.fromEnd = this.fromEnd;
+            follower.checkpoint = this.checkpoint;
+            follower.checkpointInterval = this.checkpointInterval;
+            follower.checkpointPeriod = this.checkpointPeriod;
+            follower.checkpointedAt = System.nanoTime();
+
+            return follower;
+        }
+    }
+
+    /**
+     * {@link #close()} メソッドが呼び出されるか、スレッドが割り込まれるまでファイルを監視し、追記されたレコードを整形して出力します。
+     * 監視を終了する際には出力済みのレコードの終端位置をチェックポイントとして書き込み、その後に読み込み中のファイルを閉じます。
+     *
+     * @param output 整形結果の出力先
+     *
+     * @throws IOException          ファイルの読み込みまたは出力に失敗した場合
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public void follow(@NonNull Appendable output) throws IOException {
+
+        synchronized (this) {
+            this.following = true;
+        }
+
+        try {
+            this.watch(output);
+            this.saveCheckpoint();
+        } finally {
+            synchronized (this) {
+                this.following = false;
+            }
+
+            this.closeChannel();
+        }
+    }
+
+    /**
+     * {@link #close()} メソッドが呼び出されるか、スレッドが割り込まれるまでファイルの変更を待機し、追記されたレコードを整形して出力します。
+     *
+     * @param output 整形結果の出力先
+     *
+     * @throws IOException ファイルの読み込みまたは出力に失敗した場合
+     */
+    private void watch(Appendable output) throws IOException {
+
+        final Path directory = Objects.requireNonNullElse(this.path.toAbsolutePath().getParent(), this.path);
+
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            while (!this.closed && !Thread.currentThread().isInterrupted()) {
+                if (this.poll(output) > 0 && output instanceof Flushable) {
+                    ((Flushable) output).flush();
+                }
+
+                if (this.isCheckpointDue()) {
+                    this.saveCheckpoint();
+                }
+
+                final WatchKey key = watcher.poll(this.pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 前回の読み込み以降に追記された範囲を読み込み、改行で終わるレコードを整形して出力します。
+     *
+     * @param output 整形結果の出力先
+     * @return 出力したレコード数
+     *
+     * @throws IOException ファイルの読み込みまたは出力に失敗した場合
+     */
+    int poll(Appendable output) throws IOException {
+
+        final BasicFileAttributes attributes;
+
+        try {
+            attributes = Files.readAttributes(this.path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+
+        int records = 0;
+
+        if (this.channel == null || this.isReplaced(attributes)) {
+            if (this.channel != null) {
+                records += this.read(output, this.channel.size());
+                records += this.emitPartial(output);
+                this.channel.close();
+            }
+
+            this.open(attributes);
+        } else if (attributes.size() < this.offset) {
+            records += this.emitPartial(output);
+            this.offset = 0;
+            this.skipToNewline = false;
+        }
+
+        return records + this.read(output, this.channel.size());
+    }
+
+    /**
+     * 出力済みのレコードの終端位置をチェックポイントファイルへ書き込みます。チェックポイントファイルが設定されていない場合、
+     * または前回のチェックポイントから終端位置が変わっていない場合は何もしません。
+     * <p>
+     * 出力先へ反映した後に呼び出す必要があります。
+     *
+     * @throws IOException チェックポイントファイルの書き込みに失敗した場合
+     */
+    void saveCheckpoint() throws IOException {
+
+        if (this.checkpoint == null || this.channel == null || this.skipToNewline) {
+            return;
+        }
+
+        final long position = this.offset - this.partial.size();
+
+        if (position == this.checkpointedOffset && this.source.equals(this.checkpointedSource)) {
+            return;
+        }
+
+        JsonCheckpoint.of(this.source, position, 0, "", false, false).write(this.checkpoint);
+        this.checkpointedSource = this.source;
+        this.checkpointedOffset = position;
+        this.checkpointedAt = System.nanoTime();
+    }
+
+    /**
+     * 前回のチェックポイントから読み進めたバイト数または経過時間が間隔に達し、チェックポイントを書き込む必要があるか否かを判定します。
+     *
+     * @return チェックポイントを書き込む必要がある場合は {@code true}
+     */
+    private boolean isCheckpointDue() {
+
+        if (this.checkpoint == null || this.channel == null) {
+            return false;
+        }
+
+        return !this.source.equals(this.checkpointedSource)
+                || Math.abs(this.offset - this.partial.size() - this.checkpointedOffset) >= this.checkpointInterval
+                || System.nanoTime() - this.checkpointedAt >= this.checkpointPeriod.toNanos();
+    }
+
+    /**
+     * 監視を終了します。 {@link #follow(Appendable)} メソッドが実行中の場合は、読み込み中のファイルを閉じずに監視の終了のみを要求し、
+     * チェックポイントの書き込みとファイルを閉じる処理は {@link #follow(Appendable)} メソッドが行います。
+     *
+     * @throws IOException ファイルを閉じる処理に失敗した場合
+     */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+
+        synchronized (this) {
+            if (this.following) {
+                return;
+            }
+        }
+
+        this.closeChannel();
+    }
+
+    /**
+     * 読み込み中のファイルを閉じます。
+     *
+     * @throws IOException ファイルを閉じる処理に失敗した場合
+     */
+    private void closeChannel() throws IOException {
+        if (this.channel != null) {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * 監視対象のファイルを開き、読み込み位置を初期化します。
+     *
+     * @param attributes 監視対象のファイルの属性
+     *
+     * @throws IOException ファイルを開けなかった場合
+     */
+    private void open(BasicFileAttributes attributes) throws IOException {
+
+        final boolean first = this.channel == null;
+
+        this.channel = FileChannel.open(this.path, StandardOpenOption.READ);
+        this.fileKey = attributes.fileKey();
+        this.source = identify(attributes);
+        this.offset = 0;
+        this.partial.reset();
+        this.skipToNewline = false;
+
+        if (first && this.checkpoint != null) {
+            final Optional<JsonCheckpoint> resumed = JsonCheckpoint.read(this.checkpoint)
+                    .filter(checkpoint -> this.source.equals(checkpoint.getSource()))
+                    .filter(checkpoint -> checkpoint.getInputOffset() <= attributes.size());
+
+            if (resumed.isPresent()) {
+                this.offset = resumed.get().getInputOffset();
+                this.checkpointedSource = this.source;
+                this.checkpointedOffset = this.offset;
+                return;
+            }
+        }
+
+        if (first && this.fromEnd && this.channel.size() > 0) {
+            final ByteBuffer last = ByteBuffer.allocate(1);
+            this.channel.read(last, this.channel.size() - 1);
+
+            this.offset = this.channel.size();
+            this.skipToNewline = last.get(0) != LINE_FEED;
+        }
+    }
+
+    /**
+     * 監視中のファイルが別のファイルに置き換えられたか否かを判定します。
+     * <p>
+     * ファイルキーを提供するファイルシステムではファイルキーで判定し、提供しないファイルシステムでは {@link #identify(BasicFileAttributes)}
+     * メソッドと同様に作成日時の変化で判定します。 作成日時を提供しないファイルシステムでは作成日時として更新日時が返却され追記の度に変化するため、
+     * 作成日時が更新日時と一致する場合は置き換えられていないものとし、呼び出し元でサイズが読み込み位置より小さくなったことのみを検知します。
+     *
+     * @param attributes 現在のファイルの属性
+     * @return 別のファイルに置き換えられた場合は {@code true}
+     */
+    private boolean isReplaced(BasicFileAttributes attributes) {
+
+        if (this.fileKey != null || attributes.fileKey() != null) {
+            return !Objects.equals(this.fileKey, attributes.fileKey());
+        }
+
+        return !attributes.creationTime().equals(attributes.lastModifiedTime())
+                && !this.source.equals(identify(attributes));
+    }
+
+    /**
+     * チェックポイントに記録するファイルの識別子を返却します。
+     * <p>
+     * ファイルキーを提供するファイルシステムではファイルキーを使用します。 ファイルキーを提供しないファイルシステムでは作成日時を使用し、
+     * 追記によって変化するサイズと更新日時の代わりに、チェックポイントの読み込み位置がファイルのサイズを超えていないことを再開時に検証します。
+     * 作成日時も提供しないファイルシステムでは作成日時として更新日時が返却されるため、追記された後はチェックポイントから再開しません。
+     *
+     * @param attributes ファイルの属性
+     * @return ファイルの識別子
+     */
+    private static String identify(BasicFileAttributes attributes) {
+
+        if (attributes.fileKey() != null) {
+            return String.valueOf(attributes.fileKey());
+        }
+
+        return String.format("created/%d", attributes.creationTime().toMillis());
+    }
+
+    /**
+     * 現在の読み込み位置から指定された位置までを読み込み、改行で終わるレコードを整形して出力します。
+     *
+     * @param output 整形結果の出力先
+     * @param end    読み込みを終了する位置
+     * @return 出力したレコード数
+     *
+     * @throws IOException ファイルの読み込みまたは出力に失敗した場合
+     */
+    private int read(Appendable output, long end) throws IOException {
+
+        int records = 0;
+
+        while (this.offset < end) {
+            this.window.clear();
+
+            if (end - this.offset < this.window.capacity()) {
+                this.window.limit((int) (end - this.offset));
+            }
+
+            final int read = this.channel.read(this.window, this.offset);
+
+            if (read <= 0) {
+                break;
+            }
+
+            this.offset += read;
+
+            final byte[] bytes = this.window.array();
+            int start = 0;
+
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] != LINE_FEED) {
+                    continue;
+                }
+
+                if (this.skipToNewline) {
+                    this.skipToNewline = false;
+                } else if (this.partial.size() + i - start > this.maxRecordBytes) {
+                    this.partial.reset();
+                } else if (this.partial.size() == 0) {
+                    records += this.emit(output, bytes, start, i - start);
+                } else {
+                    this.partial.write(bytes, start, i - start);
+
+                    final byte[] record = this.partial.toByteArray();
+                    this.partial.reset();
+                    records += this.emit(output, record, 0, record.length);
+                }
+
+                start = i + 1;
+            }
+
+            if (this.skipToNewline) {
+                continue;
+            }
+
+            if (this.partial.size() + read - start > this.maxRecordBytes) {
+                this.partial.reset();
+                this.skipToNewline = true;
+            } else {
+                this.partial.write(bytes, start, read - start);
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * 改行で終わっていないレコードの途中までの内容を1つのレコードとして出力し、保持している内容を破棄します。
+     *
+     * @param output 整形結果の出力先
+     * @return 出力したレコード数
+     *
+     * @throws IOException 出力に失敗した場合
+     */
+    private int emitPartial(Appendable output) throws IOException {
+
+        if (this.skipToNewline || this.partial.size() == 0) {
+            this.partial.reset();
+            return 0;
+        }
+
+        final byte[] record = this.partial.toByteArray();
+        this.partial.reset();
+
+        return this.emit(output, record, 0, record.length);
+    }
+
+    /**
+     * 改行で区切られた1つのレコードを整形して出力します。空行は出力しません。
+     *
+     * @param output 整形結果の出力先
+     * @param bytes  レコードを格納したバイト配列
+     * @param start  レコードの開始位置
+     * @param length レコードのバイト数
+     * @return 出力したレコード数
+     *
+     * @throws IOException 出力に失敗した場合
+     */
+    private int emit(Appendable output, byte[] bytes, int start, int length) throws IOException {
+
+        if (length > 0 && bytes[start + length - 1] == CARRIAGE_RETURN) {
+            length--;
+        }
+
+        final String json = new String(bytes, start, length, StandardCharsets.UTF_8);
+
+        if (json.isBlank()) {
+            return 0;
+        }
+
+        output.append(this.formatter.format(json));
+
+        return 1;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import org.thinkit.common.base.precondition.Preconditions;
+
+import lombok.NonNull;
+
+/**
+ * 巨大なJSONファイルを一定のメモリで逐次整形し、定期的に書き込むチェックポイントから整形処理を再開できるクラスです。
+ * <p>
+ * 入力ファイルを {@link JsonChannelFormatter} でバイト単位で走査し、完結したJSON文書であれば {@link JsonFormatter#format(String)}
+ * メソッドと同じ整形結果を出力ファイルへ書き込みます。 整形結果は入力を読み込んだバッファのスライスと共有の改行とインデントのバッファから
+ * {@link FileChannel} へ直接書き込まれます。
+ * <p>
+ * 一定のバイト数を読み込む度に、出力ファイルをストレージへ反映した上で {@link JsonCheckpoint} を書き込みます。
+ * 整形処理が途中で停止した場合は、同じ設定で再度 {@link #format()} メソッドを呼び出すことで、出力ファイルをチェックポイントの位置まで切り詰めて
+ * 直前のチェックポイントから整形を再開します。 チェックポイントの書き込み後に入力ファイルが変更された場合は先頭から整形し直します。
+ * 整形が完了した場合、チェックポイントファイルは削除されます。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class JsonFileFormatter {
+
+    /**
+     * チェックポイントファイルの拡張子
+     */
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    /**
+     * 入力ファイル
+     */
+    private Path input;
+
+    /**
+     * 出力ファイル
+     */
+    private Path output;
+
+    /**
+     * チェックポイントファイル
+     */
+    private Path checkpoint;
+
+    /**
+     * インデント数
+     */
+    private int indent;
+
+    /**
+     * チェックポイントを書き込む入力のバイト数の間隔
+     */
+    private long checkpointInterval;
+
+    /**
+     * 読み込み用のウィンドウ
+     */
+    private ByteBuffer window;
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonFileFormatter() {
+    }
+
+    /**
+     * {@link JsonFileFormatter} クラスのインスタンスを生成する {@link Builder} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @return {@link Builder} クラスの新しいインスタンス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link JsonFileFormatter} クラスのインスタンスを生成する処理を定義したビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    public static class Builder {
+
+        /**
+         * 入力ファイル
+         */
+        private Path input;
+
+        /**
+         * 出力ファイル
+         */
+        private Path output;
+
+        /**
+         * チェックポイントファイル
+         */
+        private Path checkpoint;
+
+        /**
+         * インデント数
+         */
+        private int indent = -1;
+
+        /**
+         * チェックポイントを書き込む入力のバイト数の間隔
+         */
+        private long checkpointInterval = 256L * 1024 * 1024;
+
+        /**
+         * 読み込み用のウィンドウのサイズ
+         */
+        private int windowSize = 1024 * 1024;
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * 整形するJSONファイルを設定します。
+         *
+         * @param input 入力ファイル
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withInput(@NonNull Path input) {
+            this.input = input;
+            return this;
+        }
+
+        /**
+         * 整形結果を書き込むファイルを設定します。
+         *
+         * @param output 出力ファイル
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withOutput(@NonNull Path output) {
+            this.output = output;
+            return this;
+        }
+
+        /**
+         * チェックポイントファイルを設定します。設定しない場合は出力ファイルと同じディレクトリの {@code <出力ファイル名>.checkpoint} を使用します。
+         *
+         * @param checkpoint チェックポイントファイル
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withCheckpoint(@NonNull Path checkpoint) {
+            this.checkpoint = checkpoint;
+            return this;
+        }
+
+        /**
+         * インデント数を設定します。負数を設定した場合は既定のインデント数で整形します。
+         *
+         * @param indent インデント数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withIndent(int indent) {
+            this.indent = indent;
+            return this;
+        }
+
+        /**
+         * チェックポイントを書き込む入力のバイト数の間隔を設定します。
+         *
+         * @param checkpointInterval チェックポイントを書き込む入力のバイト数の間隔
+         * @return 自分自身のインスタンス
+         */
+        public Builder withCheckpointInterval(long checkpointInterval) {
+            this.checkpointInterval = checkpointInterval;
+            return this;
+        }
+
+        /**
+         * 1回の読み込みで使用するウィンドウのバイト数を設定します。
+         *
+         * @param windowSize ウィンドウのバイト数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link JsonFileFormatter} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link JsonFileFormatter} クラスの新しいインスタンス
+         */
+        public JsonFileFormatter build() {
+            Preconditions.requireNonNull(this.input);
+            Preconditions.requireNonNull(this.output);
+
+            if (this.checkpointInterval < 1) {
+                throw new IllegalArgumentException(
+                        String.format("Invalid checkpoint interval: %d", this.checkpointInterval));
+            }
+
+            if (this.windowSize < 1) {
+                throw new IllegalArgumentException(String.format("Invalid window size: %d", this.windowSize));
+            }
+
+            final JsonFileFormatter formatter = new JsonFileFormatter();
+            formatter.input = this.input;
+            formatter.output = this.output;
+            formatter.checkpoint = this.checkpoint != null ? this.checkpoint
+                    : this.output.resolveSibling(this.output.getFileName() + CHECKPOINT_SUFFIX);
+            formatter.indent = this.indent;
+            formatter.checkpointInterval = this.checkpointInterval;
+            formatter.window = ByteBuffer.allocateDirect(this.windowSize);
+
+            return formatter;
+        }
+    }
+
+    /**
+     * 入力ファイルを整形し出力ファイルへ書き込みます。有効なチェックポイントが存在する場合はチェックポイントから整形を再開します。
+     *
+     * @throws IOException ファイルの読み込みまたは書き込みに失敗した場合
+     */
+    public void format() throws IOException {
+        this.format(Long.MAX_VALUE);
+    }
+
+    /**
+     * 入力ファイルの指定された位置まで整形し出力ファイルへ書き込みます。入力ファイルの終端まで整形した場合はチェックポイントファイルを削除します。
+     *
+     * @param limit 整形を中断する入力のバイト位置
+     *
+     * @throws IOException ファイルの読み込みまたは書き込みに失敗した場合
+     */
+    void format(long limit) throws IOException {
+
+        final BasicFileAttributes attributes = Files.readAttributes(this.input, BasicFileAttributes.class);
+        final String source = String.format("%d/%d", attributes.size(), attributes.lastModifiedTime().toMillis());
+
+        try (FileChannel in = FileChannel.open(this.input, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(this.output, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+            final long outputSize = out.size();
+            final JsonCheckpoint resumed = JsonCheckpoint.read(this.checkpoint)
+                    .filter(checkpoint -> source.equals(checkpoint.getSource()))
+                    .filter(checkpoint -> checkpoint.getOutputOffset() <= outputSize)
+                    .orElse(JsonCheckpoint.of(source, 0, 0, "", false, false));
+
+            final JsonChannelFormatter formatter = JsonChannelFormatter.of(out, this.indent).restore(resumed);
+            long inputOffset = resumed.getInputOffset();
+            long lastCheckpoint = inputOffset;
+
+            out.truncate(resumed.getOutputOffset());
+            out.position(resumed.getOutputOffset());
+
+            while (inputOffset < attributes.size() && inputOffset < limit) {
+                this.window.clear();
+
+                if (attributes.size() - inputOffset < this.window.capacity()) {
+                    this.window.limit((int) (attributes.size() - inputOffset));
+                }
+
+                final int read = in.read(this.window, inputOffset);
+
+                if (read <= 0) {
+                    break;
+                }
+
+                formatter.format(this.window.flip());
+                inputOffset += read;
+
+                if (inputOffset - lastCheckpoint >= this.checkpointInterval && inputOffset < attributes.size()) {
+                    out.force(false);
+                    formatter.checkpoint(source, inputOffset, out.position()).write(this.checkpoint);
+                    lastCheckpoint = inputOffset;
+                }
+            }
+
+            if (inputOffset < attributes.size()) {
+                return;
+            }
+
+            if (attributes.size() > 0) {
+                formatter.finish();
+            }
+
+            out.truncate(out.position());
+            out.force(true);
+        }
+
+        Files.deleteIfExists(this.checkpoint);
+    }
+}
@@ -14,14 +14,26 @@
 
 package org.thinkit.formatter.json;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 import org.thinkit.formatter.common.Tokenizable;
 import org.thinkit.formatter.json.catalog.Brace;
 import org.thinkit.formatter.json.catalog.Bracket;
 import org.thinkit.formatter.json.catalog.Delimiter;
 
-import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
-import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -30,55 +42,587 @@ import lombok.ToString;
  * <p>
  * {@link JsonFormatter} クラスのインスタンス生成時に渡されたJSON文字列が {@code ""} の場合、
  * {@link #format(String)} メソッドは必ず {@code ""} を返却します。
+ * <p>
+ * {@link StringBuilder} や {@link java.nio.CharBuffer} 、文字配列に格納されたJSON文字列は
+ * {@link #format(CharSequence)} 、 {@link #format(char[], int, int)} 、 {@link #formatTo(CharSequence, Appendable)}
+ * メソッドを使用することで {@link String} へコピーせずに整形することができます。
+ * <p>
+ * {@link Builder#withLineWidth(int)} メソッドで最大行幅を設定した場合は、最大行幅に収まるオブジェクトと配列を1行にまとめて出力します。
+ * <p>
+ * 巨大なJSON文字列や極端に深い階層のJSON文字列から呼び出し元のスレッドを保護する場合は
+ * {@link #formatAsync(CharSequence, Executor, Duration, long)} メソッドで期限と出力の上限を指定して整形してください。
+ * <p>
+ * {@link Builder#withRedactedKeys(Set)} メソッドでキー名またはパスを設定した場合は、一致したキーの値を置換文字列に置き換えて整形します。
  *
  * @author Kato Shinya
  * @since 1.0.0
  */
 @ToString
 @EqualsAndHashCode
-@NoArgsConstructor(staticName = "newInstance")
-@AllArgsConstructor(staticName = "from")
 public final class JsonFormatter implements Formatter {
 
+    /**
+     * 非同期の整形処理で中断の要否を確認するトークン数の間隔
+     */
+    private static final int CHECKPOINT_INTERVAL = 1 << 12;
+
     /**
      * 整形処理時のインデント数
      */
     private int indent = -1;
 
+    /**
+     * 最大行幅
+     */
+    private int lineWidth;
+
+    /**
+     * 整形結果のバッファがヒープに保持するチャンクの最大バイト数
+     */
+    private long heapLimit;
+
+    /**
+     * 値を置き換えるキーのトライ木、値を置き換えない場合は {@code null}
+     */
+    private JsonKeyTrie redactedKeys;
+
+    /**
+     * 置き換えた値のトークン
+     */
+    private String redactionPlaceholder;
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonFormatter() {
+    }
+
+    /**
+     * 既定の設定で {@link JsonFormatter} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @return {@link JsonFormatter} クラスの新しいインスタンス
+     */
+    public static JsonFormatter newInstance() {
+        return builder().build();
+    }
+
+    /**
+     * 引数として渡されたインデント数で整形する {@link JsonFormatter} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param indent 整形処理時のインデント数
+     * @return {@link JsonFormatter} クラスの新しいインスタンス
+     */
+    public static JsonFormatter from(int indent) {
+        return builder().withIndent(indent).build();
+    }
+
+    /**
+     * {@link JsonFormatter} クラスのインスタンスを生成する {@link Builder} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @return {@link Builder} クラスの新しいインスタンス
+     *
+     * @since 1.0.3
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link JsonFormatter} クラスのインスタンスを生成する処理を定義したビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    public static class Builder {
+
+        /**
+         * インデント数
+         */
+        private int indent = -1;
+
+        /**
+         * 最大行幅
+         */
+        private int lineWidth;
+
+        /**
+         * 整形結果のバッファがヒープに保持するチャンクの最大バイト数
+         */
+        private long heapLimit = Long.MAX_VALUE;
+
+        /**
+         * 値を置き換えるキー名とパス
+         */
+        private Set<String> redactedKeys = Set.of();
+
+        /**
+         * 置換文字列
+         */
+        private String redactionPlaceholder = "***";
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * インデント数を設定します。負数を設定した場合は既定のインデント数で整形します。
+         *
+         * @param indent インデント数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withIndent(int indent) {
+            this.indent = indent;
+            return this;
+        }
+
+        /**
+         * 最大行幅を設定します。 {@code 0} を設定した場合は全ての値を別々の行に出力します。
+         *
+         * @param lineWidth 最大行幅
+         * @return 自分自身のインスタンス
+         */
+        public Builder withLineWidth(int lineWidth) {
+            this.lineWidth = lineWidth;
+            return this;
+        }
+
+        /**
+         * 整形結果を保持する {@link JsonOutputBuffer} がヒープに保持するチャンクの最大バイト数を設定します。
+         * 上限を超えたチャンクは古いものから一時ファイルへ退避します。 既定では上限を設けません。
+         *
+         * @param heapLimit ヒープに保持するチャンクの最大バイト数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withHeapLimit(long heapLimit) {
+            this.heapLimit = heapLimit;
+            return this;
+        }
+
+        /**
+         * 値を置換文字列に置き換えるキー名とパスを設定します。
+         * <p>
+         * {@code password} のように {@code .} を含まないキー名は全ての階層のキーと一致し、 {@code user.password}
+         * のように {@code .} を含むパスは最上位のオブジェクトからのキーの並びと一致します。 パスでは配列を階層として数えません。
+         * 値がオブジェクトまたは配列の場合は、その全体を置換文字列に置き換えます。
+         *
+         * @param redactedKeys 値を置き換えるキー名とパス
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withRedactedKeys(@NonNull Set<String> redactedKeys) {
+            this.redactedKeys = redactedKeys;
+            return this;
+        }
+
+        /**
+         * 置き換えた値として出力する置換文字列を設定します。置換文字列はJSONの文字列として出力されます。
+         *
+         * @param redactionPlaceholder 置換文字列
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withRedactionPlaceholder(@NonNull String redactionPlaceholder) {
+            this.redactionPlaceholder = redactionPlaceholder;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link JsonFormatter} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link JsonFormatter} クラスの新しいインスタンス
+         */
+        public JsonFormatter build() {
+
+            if (this.lineWidth < 0) {
+                throw new IllegalArgumentException(String.format("Invalid line width: %d", this.lineWidth));
+            }
+
+            if (this.heapLimit < 1) {
+                throw new IllegalArgumentException(String.format("Invalid heap limit: %d", this.heapLimit));
+            }
+
+            final JsonFormatter formatter = new JsonFormatter();
+            formatter.indent = this.indent;
+            formatter.lineWidth = this.lineWidth;
+            formatter.heapLimit = this.heapLimit;
+
+            if (!this.redactedKeys.isEmpty()) {
+                formatter.redactedKeys = JsonKeyTrie.of(this.redactedKeys);
+                formatter.redactionPlaceholder = String.format("\"%s\"",
+                        this.redactionPlaceholder.replace("\\", "\\\\").replace("\"", "\\\""));
+            }
+
+            return formatter;
+        }
+    }
+
     @Override
     public String format(@NonNull final String json) {
+        return this.format((CharSequence) json);
+    }
+
+    @Override
+    public String format(@NonNull final CharSequence json) {
+        return json.length() == 0 ? "" : this.formatToBuffer(json).toString();
+    }
+
+    /**
+     * 引数として渡された {@code json} 文字列を整形し、整形結果を {@code output} へ直接追加します。
+     * <p>
+     * 入力は呼び出し元の領域を位置で直接走査し、整形結果も中間の文字列を介さずに出力先へ追加します。
+     *
+     * @param json   整形されていないJSON文字列
+     * @param output 整形結果の出力先
+     *
+     * @throws IOException             出力先への追加に失敗した場合
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    @Override
+    public void formatTo(@NonNull final CharSequence json, @NonNull final Appendable output) throws IOException {
+
+        if (json.length() == 0) {
+            return;
+        }
+
+        try {
+            this.appendFormatted(this.tokenize(json), output);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 引数として渡された {@code json} 文字列を整形し、整形結果を保持する {@link JsonOutputBuffer} を返却します。
+     * <p>
+     * 整形結果は固定長のチャンク単位で保持されるため、巨大なJSONを整形する場合でも単一の {@link String} を生成する必要がありません。
+     * 整形結果をファイルやソケットへ出力する場合は {@link JsonOutputBuffer#transferTo(java.nio.channels.WritableByteChannel)}
+     * メソッドを使用してください。 {@link Builder#withHeapLimit(long)} メソッドで上限を設定した場合は、上限を超えたチャンクを一時ファイルへ退避します。
+     *
+     * @param json 整形されていないJSON文字列
+     * @return 整形結果を保持する {@link JsonOutputBuffer}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     * @exception UncheckedIOException 一時ファイルへの退避に失敗した場合
+     */
+    public JsonOutputBuffer formatToBuffer(@NonNull final CharSequence json) {
+
+        final JsonOutputBuffer buffer = JsonOutputBuffer.newInstance(this.heapLimit);
 
-        if (json.isEmpty()) {
-            return "";
+        if (json.length() > 0) {
+            this.appendFormatted(this.tokenize(json), buffer);
         }
 
+        return buffer;
+    }
+
+    /**
+     * 引数として渡された {@code json} 文字列を整形した結果を1行ずつ返却する {@link Stream} を返却します。
+     * <p>
+     * 返却された {@link Stream} は要素が要求される度に次の行を出力するまでトークン解析を進めるため、
+     * 先頭の数行のみを参照する場合は巨大なJSON文字列でも参照した範囲に比例する時間で処理が完了します。 各行には改行コードを含みません。
+     *
+     * @param json 整形されていないJSON文字列
+     * @return 整形結果を1行ずつ返却する {@link Stream}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     *
+     * @since 1.0.3
+     */
+    public Stream<String> lines(@NonNull final CharSequence json) {
+
+        if (json.length() == 0) {
+            return Stream.empty();
+        }
+
+        final JsonLineIterator lines = JsonLineIterator.of(this.tokenize(json), this.indent, this.lineWidth);
+
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(lines, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * 引数として渡された {@code json} 文字列を {@code executor} で非同期に整形します。
+     * <p>
+     * 返却された {@link CompletableFuture} を {@link CompletableFuture#cancel(boolean)} メソッドで取り消した場合、
+     * 整形処理は4096トークンを処理する度に取り消しを検知して中断し、途中までの整形結果は返却せずに参照を手放します。
+     *
+     * @param json     整形されていないJSON文字列
+     * @param executor 整形処理を実行するエグゼキューター
+     * @return 整形結果を返却する {@link CompletableFuture}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     *
+     * @since 1.0.3
+     */
+    public CompletableFuture<String> formatAsync(@NonNull final CharSequence json, @NonNull final Executor executor) {
+        return this.formatAsync(json, executor, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * 引数として渡された {@code json} 文字列を {@code executor} で非同期に整形します。
+     * <p>
+     * {@code timeout} の経過までに整形が完了しない場合、返却された {@link CompletableFuture} は
+     * {@link java.util.concurrent.TimeoutException} で完了します。 {@code timeout} に {@link Duration#ZERO}
+     * を指定した場合は期限を設けずに出力の上限のみを適用します。 整形結果をUTF-8でエンコードしたバイト数が {@code maxBytes} を超えた場合は
+     * {@link IllegalArgumentException} で完了します。 いずれの場合も整形処理は4096トークンを処理する度に状態を確認して中断し、
+     * 途中までの整形結果は返却せずに参照を手放します。 {@link CompletableFuture#cancel(boolean)} メソッドで取り消した場合も同様です。
+     * <p>
+     * 状態の確認はトークンの境界でのみ行うため、1つの巨大な文字列トークンを整形している間は中断できません。
+     * また、上限の超過を検知するまでに直前の確認から最大4096トークン分の整形結果が出力の上限を超えて保持されます。
+     *
+     * @param json     整形されていないJSON文字列
+     * @param executor 整形処理を実行するエグゼキューター
+     * @param timeout  整形処理の期限、期限を設けない場合は {@link Duration#ZERO}
+     * @param maxBytes 整形結果をUTF-8でエンコードした場合の最大バイト数
+     * @return 整形結果を返却する {@link CompletableFuture}
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 期限が負数の場合、または最大バイト数が正数ではない場合
+     *
+     * @since 1.0.3
+     */
+    public CompletableFuture<String> formatAsync(@NonNull final CharSequence json, @NonNull final Executor executor,
+            @NonNull final Duration timeout, long maxBytes) {
+
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException(String.format("Invalid timeout: %s", timeout));
+        }
+
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException(String.format("Invalid max bytes: %d", maxBytes));
+        }
+
+        return this.formatAsync(json, executor, timeout.toNanos(), maxBytes);
+    }
+
+    /**
+     * 引数として渡された {@code json} 文字列を {@code executor} で非同期に整形します。
+     *
+     * @param json         整形されていないJSON文字列
+     * @param executor     整形処理を実行するエグゼキューター
+     * @param timeoutNanos 整形処理の期限（ナノ秒）、期限を設けない場合は {@code 0}
+     * @param maxBytes     整形結果をUTF-8でエンコードした場合の最大バイト数
+     * @return 整形結果を返却する {@link CompletableFuture}
+     */
+    private CompletableFuture<String> formatAsync(CharSequence json, Executor executor, long timeoutNanos,
+            long maxBytes) {
+
+        final CompletableFuture<String> future = new CompletableFuture<>();
+
+        if (timeoutNanos > 0) {
+            future.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+
+        try {
+            executor.execute(() -> this.complete(future, json, maxBytes));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * 引数として渡された {@code json} 文字列を整形し、整形結果で {@code future} を完了させます。
+     * <p>
+     * {@code future} が既に完了している場合、または整形結果をUTF-8でエンコードしたバイト数が {@code maxBytes} を超えた場合は整形処理を中断します。
+     *
+     * @param future   整形結果で完了させる {@link CompletableFuture}
+     * @param json     整形されていないJSON文字列
+     * @param maxBytes 整形結果をUTF-8でエンコードした場合の最大バイト数
+     */
+    private void complete(CompletableFuture<String> future, CharSequence json, long maxBytes) {
+
+        if (future.isDone()) {
+            return;
+        }
+
+        final JsonOutputBuffer buffer = JsonOutputBuffer.newInstance();
+        final Runnable checkpoint = () -> {
+            if (future.isDone()) {
+                throw new CancellationException("The formatting has been cancelled.");
+            }
+
+            if (buffer.utf8Size() > maxBytes) {
+                throw new IllegalArgumentException(
+                        String.format("The formatted JSON exceeds the max size of %d bytes.", maxBytes));
+            }
+        };
+
+        try {
+            if (json.length() > 0) {
+                this.appendFormatted(CheckpointTokenizer.of(this.tokenize(json), checkpoint), buffer);
+            }
+
+            checkpoint.run();
+            future.complete(buffer.toString());
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 引数として渡された {@code json} 文字列を走査するトークナイザーを返却します。値を置き換えるキーが設定されている場合は、
+     * 一致したキーの値を置換文字列のトークンとして返却するトークナイザーを返却します。
+     *
+     * @param json 整形されていないJSON文字列
+     * @return JSONのトークナイザー
+     */
+    private Tokenizable tokenize(CharSequence json) {
+
         final Tokenizable tokenizer = JsonTokenizer.of(json);
-        final JsonAppender appender = JsonAppender.builder().register(tokenizer).withIndent(this.indent).build();
 
+        if (this.redactedKeys == null) {
+            return tokenizer;
+        }
+
+        return JsonRedactingTokenizer.of(tokenizer, this.redactedKeys, this.redactionPlaceholder);
+    }
+
+    /**
+     * 引数として渡された {@code tokenizer} のトークンを整形し、末尾の改行を含む整形結果を {@code output} へ追加します。
+     *
+     * @param tokenizer JSONのトークナイザー
+     * @param output    整形結果の出力先
+     *
+     * @exception UncheckedIOException 出力先への追加に失敗した場合
+     */
+    private void appendFormatted(Tokenizable tokenizer, Appendable output) {
+
+        final JsonAppender appender = JsonAppender.builder().register(tokenizer).withIndent(this.indent)
+                .withOutput(output).build();
+
+        if (this.lineWidth > 0) {
+            JsonCompactLayout.of(tokenizer, appender, this.lineWidth).appendTokens();
+        } else {
+            appendTokens(tokenizer, appender);
+        }
+
+        appender.appendNewline();
+    }
+
+    /**
+     * 引数として渡された {@code tokenizer} の全てのトークンを整形し {@code appender} へ追加します。末尾の改行は追加しません。
+     *
+     * @param tokenizer JSONのトークナイザー
+     * @param appender  整形結果を追加するアペンダー
+     */
+    static void appendTokens(Tokenizable tokenizer, JsonAppender appender) {
         while (tokenizer.next()) {
-            if (tokenizer.isWhitespace(tokenizer.getToken())) {
-                continue;
+            appendCurrentToken(tokenizer, appender);
+        }
+    }
+
+    /**
+     * 引数として渡された {@code tokenizer} の現在のトークンを整形し {@code appender} へ追加します。空白のトークンは追加しません。
+     *
+     * @param tokenizer JSONのトークナイザー
+     * @param appender  整形結果を追加するアペンダー
+     */
+    static void appendCurrentToken(Tokenizable tokenizer, JsonAppender appender) {
+
+        if (tokenizer.isWhitespace(tokenizer.getToken())) {
+            return;
+        }
+
+        final String lowercaseToken = tokenizer.getLowercaseToken();
+
+        if (Brace.START.getTag().equals(lowercaseToken) || Bracket.START.getTag().equals(lowercaseToken)) {
+            appender.appendToken().incrementIndent().appendNewline();
+        } else if (Brace.END.getTag().equals(lowercaseToken) || Bracket.END.getTag().equals(lowercaseToken)) {
+            appender.decrementIndent().appendNewline().appendToken();
+        } else if (Delimiter.COMMA.getTag().equals(lowercaseToken)) {
+            appender.appendToken().appendNewline();
+
+            final String lastToken = tokenizer.getLastToken();
+
+            if (Bracket.END.getTag().equals(lastToken)) {
+                appender.appendNewline();
             }
+        } else {
+            appender.appendToken();
+        }
+    }
+
+    /**
+     * 一定数のトークンを読み込む度に中断の要否を確認するトークナイザーです。
+     * <p>
+     * 確認処理が例外を送出した場合、トークンの読み込みは中断されます。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    private static final class CheckpointTokenizer implements Tokenizable {
+
+        /**
+         * 委譲先のトークナイザー
+         */
+        private final Tokenizable tokenizer;
+
+        /**
+         * 中断の要否を確認する処理
+         */
+        private final Runnable checkpoint;
 
-            final String lowercaseToken = tokenizer.getLowercaseToken();
+        /**
+         * 読み込んだトークン数
+         */
+        private int tokens;
 
-            if (Brace.START.getTag().equals(lowercaseToken) || Bracket.START.getTag().equals(lowercaseToken)) {
-                appender.appendToken().incrementIndent().appendNewline();
-            } else if (Brace.END.getTag().equals(lowercaseToken) || Bracket.END.getTag().equals(lowercaseToken)) {
-                appender.decrementIndent().appendNewline().appendToken();
-            } else if (Delimiter.COMMA.getTag().equals(lowercaseToken)) {
-                appender.appendToken().appendNewline();
+        /**
+         * コンストラクタ
+         *
+         * @param tokenizer  委譲先のトークナイザー
+         * @param checkpoint 中断の要否を確認する処理
+         */
+        private CheckpointTokenizer(Tokenizable tokenizer, Runnable checkpoint) {
+            this.tokenizer = tokenizer;
+            this.checkpoint = checkpoint;
+        }
+
+        /**
+         * 引数として渡された値を基に {@link CheckpointTokenizer} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @param tokenizer  委譲先のトークナイザー
+         * @param checkpoint 中断の要否を確認する処理
+         * @return {@link CheckpointTokenizer} クラスの新しいインスタンス
+         */
+        private static Tokenizable of(Tokenizable tokenizer, Runnable checkpoint) {
+            return new CheckpointTokenizer(tokenizer, checkpoint);
+        }
 
-                final String lastToken = tokenizer.getLastToken();
+        @Override
+        public boolean next() {
 
-                if (Bracket.END.getTag().equals(lastToken)) {
-                    appender.appendNewline();
-                }
-            } else {
-                appender.appendToken();
+            if (++this.tokens % CHECKPOINT_INTERVAL == 0) {
+                this.checkpoint.run();
             }
+
+            return this.tokenizer.next();
+        }
+
+        @Override
+        public String getToken() {
+            return this.tokenizer.getToken();
         }
 
-        return appender.appendNewline().toString();
+        @Override
+        public String getLowercaseToken() {
+            return this.tokenizer.getLowercaseToken();
+        }
+
+        @Override
+        public String getLastToken() {
+            return this.tokenizer.getLastToken();
+        }
+
+        @Override
+        public boolean isWhitespace(String token) {
+            return this.tokenizer.isWhitespace(token);
+        }
     }
 }
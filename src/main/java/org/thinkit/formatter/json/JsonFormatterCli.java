@@ -0,0 +1,293 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+
+/**
+ * {@link JsonFormatter} クラスをコマンドラインから実行する際のエントリーポイントです。
+ * <p>
+ * GraalVMの {@code native-image} でネイティブ実行ファイルとしてビルドすることを想定しており、
+ * 起動時に必要なリソースとリフレクションの設定は {@code META-INF/native-image} 配下で管理しています。
+ * ネイティブ実行ファイルをビルドする場合は {@code ./gradlew nativeImage} を、 JVM上で起動時間を短縮する場合は
+ * {@code ./gradlew cdsArchive} で生成したAppCDSアーカイブを使用してください。
+ * <p>
+ * 短時間に何度も呼び出す場合は {@code --daemon} で整形デーモンを常駐させ、 {@code --client} で整形を要求することもできます。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class JsonFormatterCli {
+
+    /**
+     * 値を取らないオプション
+     */
+    private static final Set<String> FLAGS = Set.of("--daemon", "--client", "--stats", "--logs", "--nested-json",
+            "--from-start");
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonFormatterCli() {
+    }
+
+    /**
+     * 与えられたコマンドライン引数から {@link JsonFormatter} クラスの処理を開始します。
+     * コマンドライン引数には以下の値を指定してください。
+     *
+     * <ol>
+     * <li>{@code --indent <n>} 整形時のインデント数（任意）</li>
+     * <li>{@code --width <n>} 最大行幅、指定した場合は収まるオブジェクトと配列を1行にまとめ、整形デーモンを使用しない（任意）</li>
+     * <li>{@code --redact <keys>} 値を置換文字列に置き換えるカンマ区切りのキー名またはパス、指定した場合は整形デーモンを使用しない（任意）</li>
+     * <li>{@code --daemon} 整形デーモンとして常駐する（任意）</li>
+     * <li>{@code --client} 起動中の整形デーモンへ整形を要求する（任意）</li>
+     * <li>{@code --stats} 起動中の整形デーモンの統計情報を出力する（任意）</li>
+     * <li>{@code --logs} ログに埋め込まれたJSONオブジェクトのみを整形する（任意）</li>
+     * <li>{@code --nested-json} {@code --logs} の指定時にエスケープされたJSONも再帰的に整形する（任意）</li>
+     * <li>{@code --follow <file>} NDJSONファイルを監視し追記されたレコードを整形し続ける（任意）</li>
+     * <li>{@code --from-start} {@code --follow} の指定時に既存のレコードも整形する（任意）</li>
+     * <li>{@code --output <file>} 1つの入力ファイルを逐次整形して指定されたファイルへ書き込み、中断した場合はチェックポイントから再開する（任意）</li>
+     * <li>{@code --checkpoint <file>} {@code --output} または {@code --follow} の指定時に使用するチェックポイントファイル（任意）</li>
+     * <li>{@code --port <n>} 整形デーモンのポート番号（任意）</li>
+     * <li>{@code --workers <n>}、{@code --queue <n>} 整形デーモンのワーカー数と待ち行列の容量（任意）</li>
+     * <li>{@code --connections <n>} 整形デーモンが同時に処理する最大接続数（任意）</li>
+     * <li>整形対象のJSONファイルのパス（任意、複数指定可）</li>
+     * </ol>
+     *
+     * ファイルのパスが指定されなかった場合は標準入力から読み込んだJSON文字列を整形します。
+     * 整形結果はUTF-8で標準出力へ出力します。 {@code --client} が指定された場合でも、
+     * 整形デーモンが起動していない場合や処理能力を超過している場合は自身のプロセス内で整形します。
+     *
+     * @param args コマンドライン引数
+     *
+     * @throws IOException              入出力に失敗した場合
+     * @throws IllegalArgumentException コマンドライン引数が不正な場合
+     */
+    public static void main(String[] args) throws IOException {
+
+        final Map<String, String> options = new HashMap<>();
+        final List<String> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (FLAGS.contains(args[i])) {
+                options.put(args[i], "");
+            } else if (args[i].startsWith("--")) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException(String.format("The %s option requires a value.", args[i]));
+                }
+
+                options.put(args[i], args[++i]);
+            } else {
+                files.add(args[i]);
+            }
+        }
+
+        final int indent = Integer.parseInt(options.getOrDefault("--indent", "-1"));
+        final int port = Integer
+                .parseInt(options.getOrDefault("--port", String.valueOf(JsonFormatterDaemon.DEFAULT_PORT)));
+
+        if (options.containsKey("--daemon")) {
+            final JsonFormatterDaemon.Builder builder = JsonFormatterDaemon.builder().withPort(port);
+
+            if (options.containsKey("--workers")) {
+                builder.withWorkers(Integer.parseInt(options.get("--workers")));
+            }
+
+            if (options.containsKey("--queue")) {
+                builder.withQueueCapacity(Integer.parseInt(options.get("--queue")));
+            }
+
+            if (options.containsKey("--connections")) {
+                builder.withMaxConnections(Integer.parseInt(options.get("--connections")));
+            }
+
+            try (JsonFormatterDaemon daemon = builder.build()) {
+                daemon.serve();
+            }
+
+            return;
+        }
+
+        if (options.containsKey("--stats")) {
+            System.out.write(JsonFormatterClient.stats(port)
+                    .orElseThrow(() -> new IllegalStateException("The formatter daemon is not running.")));
+            System.out.flush();
+            return;
+        }
+
+        final Set<String> redactedKeys = options.containsKey("--redact")
+                ? Set.copyOf(Arrays.asList(options.get("--redact").split(",")))
+                : Set.of();
+        final JsonFormatter formatter = JsonFormatter.builder().withIndent(indent)
+                .withLineWidth(Integer.parseInt(options.getOrDefault("--width", "0"))).withRedactedKeys(redactedKeys)
+                .build();
+
+        if (options.containsKey("--follow")) {
+            final BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+
+            final JsonFileFollower.Builder builder = JsonFileFollower.builder()
+                    .withPath(Paths.get(options.get("--follow"))).withFormatter(formatter)
+                    .withFromEnd(!options.containsKey("--from-start"));
+
+            if (options.containsKey("--checkpoint")) {
+                builder.withCheckpoint(Paths.get(options.get("--checkpoint")));
+            }
+
+            try (JsonFileFollower follower = builder.build()) {
+                follower.follow(writer);
+            }
+
+            return;
+        }
+
+        if (options.containsKey("--output")) {
+            if (files.size() != 1 || options.containsKey("--width") || !redactedKeys.isEmpty()) {
+                throw new IllegalArgumentException("The --output option requires a single input file "
+                        + "and cannot be combined with --width or --redact.");
+            }
+
+            final JsonFileFormatter.Builder builder = JsonFileFormatter.builder().withInput(Paths.get(files.get(0)))
+                    .withOutput(Paths.get(options.get("--output"))).withIndent(indent);
+
+            if (options.containsKey("--checkpoint")) {
+                builder.withCheckpoint(Paths.get(options.get("--checkpoint")));
+            }
+
+            builder.build().format();
+            return;
+        }
+
+        if (options.containsKey("--logs")) {
+            formatLogs(JsonLogFormatter.builder().withIndent(indent)
+                    .withLineWidth(Integer.parseInt(options.getOrDefault("--width", "0")))
+                    .withNestedJson(options.containsKey("--nested-json")).withRedactedKeys(redactedKeys).build(), files);
+            return;
+        }
+
+        final List<byte[]> documents = new ArrayList<>();
+
+        if (files.isEmpty()) {
+            documents.add(System.in.readAllBytes());
+        } else {
+            for (final String file : files) {
+                documents.add(Files.readAllBytes(Paths.get(file)));
+            }
+        }
+
+        final boolean client = options.containsKey("--client") && !options.containsKey("--width")
+                && redactedKeys.isEmpty();
+
+        formatDocuments(formatter, documents, client ? OptionalInt.of(port) : OptionalInt.empty(), indent, System.out);
+        System.out.flush();
+    }
+
+    /**
+     * 引数として渡された文書を整形し出力先へ書き込みます。
+     * <p>
+     * 整形デーモンのポート番号が指定された場合は整形デーモンへ整形を要求し、整形デーモンが起動していない場合、処理能力を超過している場合、
+     * または応答がない場合は自身のプロセス内で整形します。
+     *
+     * @param formatter 自身のプロセス内で整形する場合のフォーマッタ
+     * @param documents UTF-8でエンコードされた整形対象の文書
+     * @param port      整形デーモンのポート番号、整形デーモンを使用しない場合は空
+     * @param indent    整形デーモンへ要求するインデント数
+     * @param output    出力先
+     *
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    static void formatDocuments(JsonFormatter formatter, List<byte[]> documents, OptionalInt port, int indent,
+            OutputStream output) throws IOException {
+
+        if (port.isPresent()) {
+            final Optional<List<byte[]>> formatted = JsonFormatterClient.format(port.getAsInt(), indent, documents);
+
+            if (formatted.isPresent()) {
+                for (final byte[] document : formatted.get()) {
+                    output.write(document);
+                }
+
+                return;
+            }
+        }
+
+        final WritableByteChannel channel = Channels.newChannel(output);
+
+        for (final byte[] document : documents) {
+            formatter.formatToBuffer(new String(document, StandardCharsets.UTF_8)).transferTo(channel);
+        }
+    }
+
+    /**
+     * 標準入力または引数として渡されたファイルを1行ずつ読み込み、ログに埋め込まれたJSONオブジェクトを整形して標準出力へ出力します。
+     *
+     * @param formatter ログのフォーマッタ
+     * @param files     ログファイルのパス、空の場合は標準入力から読み込む
+     *
+     * @throws IOException 入出力に失敗した場合
+     */
+    private static void formatLogs(JsonLogFormatter formatter, List<String> files) throws IOException {
+
+        final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+
+        if (files.isEmpty()) {
+            formatLines(formatter, new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                    writer);
+        } else {
+            for (final String file : files) {
+                try (BufferedReader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+                    formatLines(formatter, reader, writer);
+                }
+            }
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * 読み込んだ各行に埋め込まれたJSONオブジェクトを整形して出力します。
+     *
+     * @param formatter ログのフォーマッタ
+     * @param reader    読み込み元
+     * @param writer    出力先
+     *
+     * @throws IOException 入出力に失敗した場合
+     */
+    private static void formatLines(JsonLogFormatter formatter, BufferedReader reader, BufferedWriter writer)
+            throws IOException {
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            writer.write(formatter.format(line));
+            writer.newLine();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.Optional;
+
+import org.thinkit.formatter.json.catalog.DaemonOperation;
+import org.thinkit.formatter.json.catalog.DaemonStatus;
+
+import lombok.NonNull;
+
+/**
+ * {@link JsonFormatterDaemon} クラスへ整形要求を送信するクライアントクラスです。
+ * <p>
+ * デーモンが起動していない場合、デーモンが処理能力を超過している場合、またはデーモンが一定時間内に応答しない場合は
+ * {@link Optional#empty()} を返却するため、呼び出し元は自身のプロセス内で整形処理を行ってください。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class JsonFormatterClient {
+
+    /**
+     * 接続時のタイムアウト（ミリ秒）
+     */
+    private static final int CONNECT_TIMEOUT_MILLIS = 200;
+
+    /**
+     * 応答の読み込みのタイムアウト（ミリ秒）
+     */
+    private static final int READ_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonFormatterClient() {
+    }
+
+    /**
+     * 引数として渡された文書を1つのバッチとしてデーモンへ送信し、整形された文書を返却します。
+     *
+     * @param port      デーモンのポート番号
+     * @param indent    インデント数
+     * @param documents UTF-8でエンコードされた整形対象の文書
+     * @return UTF-8でエンコードされた整形済みの文書、デーモンで処理できなかった場合は {@link Optional#empty()}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static Optional<List<byte[]>> format(int port, int indent, @NonNull List<byte[]> documents) {
+        return format(port, indent, documents, READ_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * 引数として渡された文書を1つのバッチとしてデーモンへ送信し、指定された時間内に応答があった場合は整形された文書を返却します。
+     *
+     * @param port              デーモンのポート番号
+     * @param indent            インデント数
+     * @param documents         UTF-8でエンコードされた整形対象の文書
+     * @param readTimeoutMillis 応答の読み込みのタイムアウト（ミリ秒）
+     * @return UTF-8でエンコードされた整形済みの文書、デーモンで処理できなかった場合は {@link Optional#empty()}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static Optional<List<byte[]>> format(int port, int indent, @NonNull List<byte[]> documents,
+            int readTimeoutMillis) {
+        return request(port, DaemonOperation.FORMAT, indent, documents, readTimeoutMillis);
+    }
+
+    /**
+     * デーモンの統計情報を返却します。
+     *
+     * @param port デーモンのポート番号
+     * @return UTF-8でエンコードされた統計情報、デーモンが起動していない場合は {@link Optional#empty()}
+     */
+    public static Optional<byte[]> stats(int port) {
+        return request(port, DaemonOperation.STATS, -1, List.of(), READ_TIMEOUT_MILLIS)
+                .map(documents -> documents.get(0));
+    }
+
+    /**
+     * デーモンへ要求を送信し応答を返却します。
+     *
+     * @param port              デーモンのポート番号
+     * @param operation         操作
+     * @param indent            インデント数
+     * @param documents         送信する文書
+     * @param readTimeoutMillis 応答の読み込みのタイムアウト（ミリ秒）
+     * @return 応答に含まれる文書、正常な応答を得られなかった場合は {@link Optional#empty()}
+     */
+    private static Optional<List<byte[]>> request(int port, DaemonOperation operation, int indent,
+            List<byte[]> documents, int readTimeoutMillis) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MILLIS);
+            socket.setSoTimeout(readTimeoutMillis);
+
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            output.writeInt(operation.getCode());
+            output.writeInt(indent);
+            JsonFormatterDaemon.writeDocuments(output, documents);
+            output.flush();
+
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final int status = input.readInt();
+            final List<byte[]> response = JsonFormatterDaemon.readDocuments(input, Integer.MAX_VALUE, Long.MAX_VALUE);
+
+            return status == DaemonStatus.OK.getCode() ? Optional.of(response) : Optional.empty();
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+}
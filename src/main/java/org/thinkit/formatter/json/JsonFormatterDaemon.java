@@ -0,0 +1,840 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.thinkit.formatter.json.catalog.DaemonOperation;
+import org.thinkit.formatter.json.catalog.DaemonStatus;
+
+/**
+ * ループバックアドレスで整形要求を受け付け、常駐したJVM上で {@link JsonFormatter} クラスの処理を行うデーモンクラスです。
+ * <p>
+ * 短命なツールから整形処理を呼び出す度にJVMの起動とウォームアップを行う必要がないよう、 {@link JsonFormatterCli}
+ * のクライアントモードから利用することを想定しています。要求と応答は以下の長さ接頭辞付きのフレームで送受信します。
+ * 全ての整数はビッグエンディアンの4バイト整数です。
+ *
+ * <pre>
+ * 要求: 操作コード, インデント数, 文書数, (文書のバイト数, UTF-8の文書)...
+ * 応答: 状態コード, 文書数, (文書のバイト数, UTF-8の文書)...
+ * </pre>
+ *
+ * 1つのフレームに含まれる複数の文書は1つのバッチとして有界のワーカープールで処理されます。 フレームは要求全体の制限時間内に読み込む必要があり、
+ * 制限時間を超えた接続は閉じられます。読み込んだ文書は全ての接続で共有する入力バイト数の上限の範囲でヒープへ保持し、
+ * ワーカーと待ち行列の空きはフレームを読み終えてバッチをワーカーへ渡す時点で確保するため、送信の遅いクライアントがワーカーを占有することはありません。
+ * 入力バイト数の上限またはワーカーと待ち行列の空きが不足している場合は {@link DaemonStatus#BUSY}
+ * を応答するため、クライアントは自身のプロセス内で整形処理を行ってください。 インデント数が範囲外の要求には文書を読み捨てて
+ * {@link DaemonStatus#ERROR} を応答します。 1文書あたりのバイト数と1要求あたりの合計バイト数は上限を超える前に検査し、
+ * 上限を超えるフレームを受信した場合は接続を閉じます。 同時に処理する接続数が上限に達している場合、新しい接続は受け付けた直後に閉じられます。
+ * <p>
+ * ループバックアドレスのポートには認証がないため、同じホストの全てのユーザーが要求を送信し統計情報を参照できます。
+ * 信頼できないユーザーが同居するホストではデーモンを起動しないでください。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class JsonFormatterDaemon implements Closeable {
+
+    /**
+     * 既定のポート番号
+     */
+    static final int DEFAULT_PORT = 48970;
+
+    /**
+     * 要求の合間に受信を待つタイムアウト（ミリ秒）
+     */
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * 要求として受け付ける最大インデント数
+     */
+    static final int MAX_INDENT = 32;
+
+    /**
+     * サーバーソケット
+     */
+    private ServerSocket serverSocket;
+
+    /**
+     * 接続を処理する有界のスレッドプール
+     */
+    private ExecutorService connections;
+
+    /**
+     * 整形処理を行う有界のワーカープール
+     */
+    private ThreadPoolExecutor workers;
+
+    /**
+     * ワーカーと待ち行列の空き
+     */
+    private Semaphore permits;
+
+    /**
+     * 受け付けた接続
+     */
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 全ての接続でヒープへ保持している入力のバイト数
+     */
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    /**
+     * 全ての接続でヒープへ保持する入力の最大バイト数
+     */
+    private long maxBufferedBytes;
+
+    /**
+     * 1要求のフレームを読み込む制限時間（ミリ秒）
+     */
+    private int requestTimeoutMillis;
+
+    /**
+     * 1文書あたりの最大バイト数
+     */
+    private int maxDocumentBytes;
+
+    /**
+     * 1要求あたりの最大バイト数
+     */
+    private long maxRequestBytes;
+
+    /**
+     * 受け付けた要求数
+     */
+    private final AtomicLong requests = new AtomicLong();
+
+    /**
+     * 整形した文書数
+     */
+    private final AtomicLong documents = new AtomicLong();
+
+    /**
+     * 受信した文書のバイト数
+     */
+    private final AtomicLong bytesIn = new AtomicLong();
+
+    /**
+     * 送信した文書のバイト数
+     */
+    private final AtomicLong bytesOut = new AtomicLong();
+
+    /**
+     * 処理能力超過により拒否した要求数
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * 異常終了した要求数
+     */
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonFormatterDaemon() {
+    }
+
+    /**
+     * {@link JsonFormatterDaemon} クラスのインスタンスを生成する {@link Builder} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @return {@link Builder} クラスの新しいインスタンス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link JsonFormatterDaemon} クラスのインスタンスを生成する処理を定義したビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    public static class Builder {
+
+        /**
+         * ポート番号
+         */
+        private int port = DEFAULT_PORT;
+
+        /**
+         * ワーカー数
+         */
+        private int workers = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * 待ち行列の容量
+         */
+        private int queueCapacity = 64;
+
+        /**
+         * 1文書あたりの最大バイト数
+         */
+        private int maxDocumentBytes = 64 * 1024 * 1024;
+
+        /**
+         * 1要求あたりの最大バイト数
+         */
+        private long maxRequestBytes = 256L * 1024 * 1024;
+
+        /**
+         * 全ての接続でヒープへ保持する入力の最大バイト数
+         */
+        private long maxBufferedBytes = 256L * 1024 * 1024;
+
+        /**
+         * 同時に処理する最大接続数
+         */
+        private int maxConnections = 128;
+
+        /**
+         * 1要求のフレームを読み込む制限時間（ミリ秒）
+         */
+        private int requestTimeoutMillis = 30_000;
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * 待ち受けるポート番号を設定します。 {@code 0} を指定した場合は空いているポートを使用します。
+         *
+         * @param port ポート番号
+         * @return 自分自身のインスタンス
+         */
+        public Builder withPort(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * 整形処理を行うワーカー数を設定します。
+         *
+         * @param workers ワーカー数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withWorkers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * 処理待ちのバッチを保持する待ち行列の容量を設定します。
+         *
+         * @param queueCapacity 待ち行列の容量
+         * @return 自分自身のインスタンス
+         */
+        public Builder withQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * 1文書あたりの最大バイト数を設定します。
+         *
+         * @param maxDocumentBytes 1文書あたりの最大バイト数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withMaxDocumentBytes(int maxDocumentBytes) {
+            this.maxDocumentBytes = maxDocumentBytes;
+            return this;
+        }
+
+        /**
+         * 文書数と長さ接頭辞を含む1要求あたりの最大バイト数を設定します。
+         *
+         * @param maxRequestBytes 1要求あたりの最大バイト数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withMaxRequestBytes(long maxRequestBytes) {
+            this.maxRequestBytes = maxRequestBytes;
+            return this;
+        }
+
+        /**
+         * 読み込み中の要求を含め、全ての接続でヒープへ保持する入力の最大バイト数を設定します。
+         *
+         * @param maxBufferedBytes 全ての接続でヒープへ保持する入力の最大バイト数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withMaxBufferedBytes(long maxBufferedBytes) {
+            this.maxBufferedBytes = maxBufferedBytes;
+            return this;
+        }
+
+        /**
+         * 操作コードを受信してから1要求のフレームを読み終えるまでの制限時間を設定します。
+         *
+         * @param requestTimeoutMillis 1要求のフレームを読み込む制限時間（ミリ秒）
+         * @return 自分自身のインスタンス
+         */
+        public Builder withRequestTimeoutMillis(int requestTimeoutMillis) {
+            this.requestTimeoutMillis = requestTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * 同時に処理する最大接続数を設定します。
+         *
+         * @param maxConnections 同時に処理する最大接続数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * 設定された値を基にループバックアドレスへバインドした {@link JsonFormatterDaemon} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link JsonFormatterDaemon} クラスの新しいインスタンス
+         *
+         * @throws IOException              ポートへのバインドに失敗した場合
+         * @throws IllegalArgumentException 設定された値が不正な場合
+         */
+        public JsonFormatterDaemon build() throws IOException {
+
+            if (this.workers < 1 || this.queueCapacity < 1 || this.maxDocumentBytes < 1
+                    || this.maxRequestBytes < Integer.BYTES || this.maxBufferedBytes < this.maxDocumentBytes
+                    || this.maxConnections < 1 || this.requestTimeoutMillis < 1) {
+                throw new IllegalArgumentException(String.format(
+                        "Invalid daemon settings: workers=%d, queueCapacity=%d, maxDocumentBytes=%d, "
+                                + "maxRequestBytes=%d, maxBufferedBytes=%d, maxConnections=%d, requestTimeoutMillis=%d",
+                        this.workers, this.queueCapacity, this.maxDocumentBytes, this.maxRequestBytes,
+                        this.maxBufferedBytes, this.maxConnections, this.requestTimeoutMillis));
+            }
+
+            final JsonFormatterDaemon daemon = new JsonFormatterDaemon();
+            daemon.maxDocumentBytes = this.maxDocumentBytes;
+            daemon.maxRequestBytes = this.maxRequestBytes;
+            daemon.maxBufferedBytes = this.maxBufferedBytes;
+            daemon.requestTimeoutMillis = this.requestTimeoutMillis;
+            daemon.workers = new ThreadPoolExecutor(this.workers, this.workers, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(this.queueCapacity));
+            daemon.permits = new Semaphore(this.workers + this.queueCapacity);
+            daemon.connections = new ThreadPoolExecutor(0, this.maxConnections, 60L, TimeUnit.SECONDS,
+                    new SynchronousQueue<>());
+            daemon.serverSocket = new ServerSocket();
+            daemon.serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port));
+
+            return daemon;
+        }
+    }
+
+    /**
+     * 待ち受けているポート番号を返却します。
+     *
+     * @return 待ち受けているポート番号
+     */
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * {@link #close()} メソッドが呼び出されるまで接続を受け付けます。このメソッドは呼び出し元のスレッドをブロックします。
+     * 同時に処理している接続数が上限に達している場合、受け付けた接続は直ちに閉じられます。
+     *
+     * @throws IOException 接続の受け付けに失敗した場合
+     */
+    public void serve() throws IOException {
+        while (!this.serverSocket.isClosed()) {
+            try {
+                final Socket socket = this.serverSocket.accept();
+                socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+                this.clients.add(socket);
+
+                if (this.serverSocket.isClosed()) {
+                    this.closeClient(socket);
+                    continue;
+                }
+
+                try {
+                    this.connections.execute(() -> this.handle(socket));
+                } catch (RejectedExecutionException e) {
+                    this.rejected.incrementAndGet();
+                    this.closeClient(socket);
+                }
+            } catch (SocketException e) {
+                if (!this.serverSocket.isClosed()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 接続の受け付けを停止し、受け付けた全ての接続を閉じます。
+     *
+     * @throws IOException サーバーソケットを閉じる処理に失敗した場合
+     */
+    @Override
+    public void close() throws IOException {
+        this.serverSocket.close();
+        this.connections.shutdownNow();
+        this.workers.shutdownNow();
+
+        for (final Socket socket : this.clients) {
+            this.closeClient(socket);
+        }
+    }
+
+    /**
+     * 受け付けた接続を閉じ、管理対象から取り除きます。
+     *
+     * @param socket 接続
+     */
+    private void closeClient(Socket socket) {
+        this.clients.remove(socket);
+
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // 閉じる処理の失敗は接続の状態に影響しないため無視する
+        }
+    }
+
+    /**
+     * 1つの接続から受信した要求を接続が閉じられるまで順に処理します。 要求の合間に一定時間受信がない場合、
+     * または操作コードを受信してから制限時間内にフレームを読み終えない場合は接続を閉じます。
+     *
+     * @param socket 接続
+     */
+    private void handle(Socket socket) {
+        try (socket) {
+            final DeadlineInputStream deadline = new DeadlineInputStream(socket);
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(deadline));
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            while (true) {
+                final int operation;
+
+                try {
+                    operation = input.readInt();
+                } catch (EOFException | SocketTimeoutException e) {
+                    return;
+                }
+
+                deadline.start(this.requestTimeoutMillis);
+                final int indent = input.readInt();
+
+                this.requests.incrementAndGet();
+                this.respond(input, output, operation, indent, deadline);
+                output.flush();
+            }
+        } catch (IOException e) {
+            this.failed.incrementAndGet();
+        } finally {
+            this.clients.remove(socket);
+        }
+    }
+
+    /**
+     * 要求の文書を読み込んで処理し応答を書き込みます。
+     * <p>
+     * 整形要求の場合は入力バイト数の上限の範囲で文書を読み込み、フレームを読み終えてからワーカーと待ち行列の空きを確保します。
+     * 入力バイト数の上限を超える場合は残りの文書を読み捨て、空きがない場合は読み込んだ文書を破棄して {@link DaemonStatus#BUSY} を応答します。
+     *
+     * @param input     要求の読み込み元
+     * @param output    応答の書き込み先
+     * @param operation 操作コード
+     * @param indent    インデント数
+     * @param deadline  要求の制限時間を管理する読み込み元
+     *
+     * @throws IOException 要求の読み込みまたは応答の書き込みに失敗した場合
+     */
+    private void respond(DataInputStream input, DataOutputStream output, int operation, int indent,
+            DeadlineInputStream deadline) throws IOException {
+
+        if (operation == DaemonOperation.STATS.getCode()) {
+            skipDocuments(input, this.maxDocumentBytes, this.maxRequestBytes);
+            deadline.stop();
+            writeResponse(output, DaemonStatus.OK, List.of(this.stats().getBytes(StandardCharsets.UTF_8)));
+            return;
+        }
+
+        if (operation != DaemonOperation.FORMAT.getCode() || indent < -1 || indent > MAX_INDENT) {
+            skipDocuments(input, this.maxDocumentBytes, this.maxRequestBytes);
+            deadline.stop();
+            this.failed.incrementAndGet();
+            writeResponse(output, DaemonStatus.ERROR, List.of());
+            return;
+        }
+
+        final int count = readCount(input, this.maxRequestBytes);
+        final List<byte[]> batch = new ArrayList<>(Math.min(count, 1024));
+        long remaining = this.maxRequestBytes - ((long) count + 1) * Integer.BYTES;
+        long reserved = 0;
+        boolean admitted = true;
+
+        try {
+            for (int i = 0; i < count; i++) {
+                final int length = readLength(input, this.maxDocumentBytes, remaining);
+                remaining -= length;
+
+                if (admitted && this.reserveInput(length)) {
+                    reserved += length;
+
+                    final byte[] document = new byte[length];
+                    input.readFully(document);
+                    batch.add(document);
+                } else {
+                    admitted = false;
+                    input.skipNBytes(length);
+                }
+            }
+        } catch (IOException e) {
+            this.bufferedBytes.addAndGet(-reserved);
+            throw e;
+        }
+
+        deadline.stop();
+
+        if (!admitted || !this.permits.tryAcquire()) {
+            this.bufferedBytes.addAndGet(-reserved);
+            this.rejected.incrementAndGet();
+            writeResponse(output, DaemonStatus.BUSY, List.of());
+            return;
+        }
+
+        final long batchBytes = reserved;
+        final Future<List<byte[]>> result;
+
+        try {
+            result = this.workers.submit(() -> {
+                try {
+                    return this.format(indent, batch);
+                } finally {
+                    this.bufferedBytes.addAndGet(-batchBytes);
+                    this.permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.bufferedBytes.addAndGet(-batchBytes);
+            this.permits.release();
+            this.rejected.incrementAndGet();
+            writeResponse(output, DaemonStatus.BUSY, List.of());
+            return;
+        }
+
+        try {
+            writeResponse(output, DaemonStatus.OK, result.get());
+        } catch (ExecutionException e) {
+            this.failed.incrementAndGet();
+            writeResponse(output, DaemonStatus.ERROR, List.of());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * ヒープへ保持する入力のバイト数を上限の範囲で確保します。
+     *
+     * @param length 確保するバイト数
+     * @return 確保できた場合は {@code true} 、上限を超える場合は {@code false}
+     */
+    private boolean reserveInput(long length) {
+
+        long current;
+
+        do {
+            current = this.bufferedBytes.get();
+
+            if (current + length > this.maxBufferedBytes) {
+                return false;
+            }
+        } while (!this.bufferedBytes.compareAndSet(current, current + length));
+
+        return true;
+    }
+
+    /**
+     * バッチに含まれる文書を整形します。
+     *
+     * @param indent インデント数
+     * @param batch  整形対象の文書
+     * @return 整形された文書
+     */
+    private List<byte[]> format(int indent, List<byte[]> batch) {
+
+        final JsonFormatter formatter = JsonFormatter.from(indent);
+        final List<byte[]> formatted = new ArrayList<>(batch.size());
+
+        for (final byte[] document : batch) {
+            final byte[] result = formatter.format(new String(document, StandardCharsets.UTF_8))
+                    .getBytes(StandardCharsets.UTF_8);
+
+            this.documents.incrementAndGet();
+            this.bytesIn.addAndGet(document.length);
+            this.bytesOut.addAndGet(result.length);
+            formatted.add(result);
+        }
+
+        return formatted;
+    }
+
+    /**
+     * 統計情報を整形済みのJSON文字列として返却します。
+     *
+     * @return 統計情報
+     */
+    private String stats() {
+        return JsonFormatter.newInstance().format(String.format(
+                "{\"requests\":%d,\"documents\":%d,\"bytesIn\":%d,\"bytesOut\":%d,\"rejected\":%d,\"failed\":%d,\"activeWorkers\":%d,\"queuedBatches\":%d,\"bufferedBytes\":%d}",
+                this.requests.get(), this.documents.get(), this.bytesIn.get(), this.bytesOut.get(),
+                this.rejected.get(), this.failed.get(), this.workers.getActiveCount(), this.workers.getQueue().size(),
+                this.bufferedBytes.get()));
+    }
+
+    /**
+     * 文書数と長さ接頭辞付きの文書を読み込みます。
+     * <p>
+     * 文書数と各文書のバイト数は文書の領域を確保する前に検査するため、上限を超えるフレームを受信した場合でもヒープを消費しません。
+     *
+     * @param input            読み込み元
+     * @param maxDocumentBytes 1文書あたりの最大バイト数
+     * @param maxRequestBytes  文書数と長さ接頭辞を含む最大バイト数
+     * @return 読み込んだ文書
+     *
+     * @throws IOException 読み込みに失敗した場合、または文書が最大バイト数を超えている場合
+     */
+    static List<byte[]> readDocuments(DataInputStream input, int maxDocumentBytes, long maxRequestBytes)
+            throws IOException {
+
+        final int count = readCount(input, maxRequestBytes);
+        final List<byte[]> documents = new ArrayList<>(Math.min(count, 1024));
+        long remaining = maxRequestBytes - ((long) count + 1) * Integer.BYTES;
+
+        for (int i = 0; i < count; i++) {
+            final byte[] document = new byte[readLength(input, maxDocumentBytes, remaining)];
+            input.readFully(document);
+            remaining -= document.length;
+            documents.add(document);
+        }
+
+        return documents;
+    }
+
+    /**
+     * 文書数と長さ接頭辞付きの文書をヒープへ読み込まずに読み捨てます。
+     *
+     * @param input            読み込み元
+     * @param maxDocumentBytes 1文書あたりの最大バイト数
+     * @param maxRequestBytes  文書数と長さ接頭辞を含む最大バイト数
+     *
+     * @throws IOException 読み込みに失敗した場合、または文書が最大バイト数を超えている場合
+     */
+    static void skipDocuments(DataInputStream input, int maxDocumentBytes, long maxRequestBytes) throws IOException {
+
+        final int count = readCount(input, maxRequestBytes);
+        long remaining = maxRequestBytes - ((long) count + 1) * Integer.BYTES;
+
+        for (int i = 0; i < count; i++) {
+            final int length = readLength(input, maxDocumentBytes, remaining);
+            input.skipNBytes(length);
+            remaining -= length;
+        }
+    }
+
+    /**
+     * 文書数を読み込みます。
+     *
+     * @param input           読み込み元
+     * @param maxRequestBytes 文書数と長さ接頭辞を含む最大バイト数
+     * @return 文書数
+     *
+     * @throws IOException 読み込みに失敗した場合、または文書数と長さ接頭辞が最大バイト数を超えている場合
+     */
+    private static int readCount(DataInputStream input, long maxRequestBytes) throws IOException {
+
+        final int count = input.readInt();
+
+        if (count < 0 || ((long) count + 1) * Integer.BYTES > maxRequestBytes) {
+            throw new IOException(String.format("Invalid document count: %d", count));
+        }
+
+        return count;
+    }
+
+    /**
+     * 文書のバイト数を読み込みます。
+     *
+     * @param input            読み込み元
+     * @param maxDocumentBytes 1文書あたりの最大バイト数
+     * @param remaining        要求の残りのバイト数
+     * @return 文書のバイト数
+     *
+     * @throws IOException 読み込みに失敗した場合、または文書が最大バイト数を超えている場合
+     */
+    private static int readLength(DataInputStream input, int maxDocumentBytes, long remaining) throws IOException {
+
+        final int length = input.readInt();
+
+        if (length < 0 || length > maxDocumentBytes || length > remaining) {
+            throw new IOException(String.format("Invalid document length: %d", length));
+        }
+
+        return length;
+    }
+
+    /**
+     * 状態コードと長さ接頭辞付きの文書を応答として書き込みます。
+     *
+     * @param output    書き込み先
+     * @param status    状態
+     * @param documents 書き込む文書
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private static void writeResponse(DataOutputStream output, DaemonStatus status, List<byte[]> documents)
+            throws IOException {
+        output.writeInt(status.getCode());
+        writeDocuments(output, documents);
+    }
+
+    /**
+     * 文書数と長さ接頭辞付きの文書を書き込みます。
+     *
+     * @param output    書き込み先
+     * @param documents 書き込む文書
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    static void writeDocuments(DataOutputStream output, List<byte[]> documents) throws IOException {
+
+        output.writeInt(documents.size());
+
+        for (final byte[] document : documents) {
+            output.writeInt(document.length);
+            output.write(document);
+        }
+    }
+
+    /**
+     * 要求全体の制限時間を超えた読み込みを {@link SocketTimeoutException} で中断する入力ストリームです。
+     * <p>
+     * ソケットの読み込みのタイムアウトは1回の読み込みにのみ適用されるため、少しずつ送信を続けるクライアントに対しては
+     * 読み込みの度に制限時間までの残り時間をタイムアウトとして設定し直します。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    private static final class DeadlineInputStream extends FilterInputStream {
+
+        /**
+         * 接続
+         */
+        private final Socket socket;
+
+        /**
+         * 制限時間（{@link System#nanoTime()} 基準）、制限時間を設けない場合は {@code 0}
+         */
+        private long deadline;
+
+        /**
+         * コンストラクタ
+         *
+         * @param socket 接続
+         *
+         * @throws IOException 入力ストリームの取得に失敗した場合
+         */
+        DeadlineInputStream(Socket socket) throws IOException {
+            super(socket.getInputStream());
+            this.socket = socket;
+        }
+
+        /**
+         * 現在時刻から指定された時間を制限時間として設定します。
+         *
+         * @param timeoutMillis 制限時間（ミリ秒）
+         */
+        void start(int timeoutMillis) {
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+
+        /**
+         * 制限時間を解除し、要求の合間のタイムアウトに戻します。
+         *
+         * @throws IOException タイムアウトの設定に失敗した場合
+         */
+        void stop() throws IOException {
+            this.deadline = 0;
+            this.socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+        }
+
+        @Override
+        public int read() throws IOException {
+            this.applyDeadline();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            this.applyDeadline();
+            return super.read(b, off, len);
+        }
+
+        /**
+         * 制限時間までの残り時間を読み込みのタイムアウトとして設定します。
+         *
+         * @throws IOException 制限時間を超えている場合、またはタイムアウトの設定に失敗した場合
+         */
+        private void applyDeadline() throws IOException {
+
+            if (this.deadline == 0) {
+                return;
+            }
+
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(this.deadline - System.nanoTime());
+
+            if (remainingMillis <= 0) {
+                throw new SocketTimeoutException("Request deadline exceeded");
+            }
+
+            this.socket.setSoTimeout((int) Math.min(remainingMillis, Integer.MAX_VALUE));
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * JSONオブジェクトのキー名とパスを照合するための文字単位のトライ木です。
+ * <p>
+ * {@code .} を含まないキーはキー名として、全ての階層のキーと照合します。 {@code user.password}
+ * のように {@code .} を含むキーは最上位からのパスとして照合し、配列は階層として数えません。 照合はトークンの文字を直接参照して行うため、
+ * 一致しないキーを照合する際に新たなオブジェクトを生成することはありません。 キーはエスケープシーケンスを解除せずに記述された通りに照合します。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+@ToString(exclude = { "names", "paths" })
+@EqualsAndHashCode(exclude = { "names", "paths" })
+final class JsonKeyTrie {
+
+    /**
+     * パスの区切り文字
+     */
+    static final char PATH_SEPARATOR = '.';
+
+    /**
+     * 照合するキー名とパス
+     */
+    private Set<String> keys;
+
+    /**
+     * キー名のトライ木
+     */
+    private Node names;
+
+    /**
+     * パスのトライ木
+     */
+    private Node paths;
+
+    /**
+     * トライ木の節点を表すクラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    static final class Node {
+
+        /**
+         * 子の節点へ遷移する文字
+         */
+        private char[] labels = new char[0];
+
+        /**
+         * 子の節点
+         */
+        private Node[] children = new Node[0];
+
+        /**
+         * キーの終端であるか否か
+         */
+        private boolean terminal;
+
+        /**
+         * 引数として渡された文字で遷移する子の節点を返却します。
+         *
+         * @param label 遷移する文字
+         * @return 子の節点、存在しない場合は {@code null}
+         */
+        Node child(char label) {
+
+            for (int i = 0; i < this.labels.length; i++) {
+                if (this.labels[i] == label) {
+                    return this.children[i];
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * キーの終端であるかを判定します。
+         *
+         * @return キーの終端である場合は {@code true}、それ以外は {@code false}
+         */
+        boolean isTerminal() {
+            return this.terminal;
+        }
+
+        /**
+         * 引数として渡された文字で遷移する子の節点を返却します。存在しない場合は新たに追加します。
+         *
+         * @param label 遷移する文字
+         * @return 子の節点
+         */
+        private Node add(char label) {
+
+            final Node child = this.child(label);
+
+            if (child != null) {
+                return child;
+            }
+
+            this.labels = Arrays.copyOf(this.labels, this.labels.length + 1);
+            this.children = Arrays.copyOf(this.children, this.children.length + 1);
+            this.labels[this.labels.length - 1] = label;
+
+            return this.children[this.children.length - 1] = new Node();
+        }
+    }
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonKeyTrie() {
+    }
+
+    /**
+     * 引数として渡されたキー名とパスを照合する {@link JsonKeyTrie} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param keys 照合するキー名とパス
+     * @return {@link JsonKeyTrie} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static JsonKeyTrie of(@NonNull Set<String> keys) {
+
+        final JsonKeyTrie trie = new JsonKeyTrie();
+        trie.keys = Set.copyOf(keys);
+        trie.names = new Node();
+        trie.paths = new Node();
+
+        for (final String key : trie.keys) {
+            Node node = key.indexOf(PATH_SEPARATOR) < 0 ? trie.names : trie.paths;
+
+            for (int i = 0; i < key.length(); i++) {
+                node = node.add(key.charAt(i));
+            }
+
+            node.terminal = true;
+        }
+
+        return trie;
+    }
+
+    /**
+     * パスのトライ木の根を返却します。
+     *
+     * @return パスのトライ木の根
+     */
+    Node getPathRoot() {
+        return this.paths;
+    }
+
+    /**
+     * 指定された範囲の文字がいずれかのキー名と一致するかを判定します。
+     *
+     * @param text  照合する文字列
+     * @param start 開始位置
+     * @param end   終了位置
+     * @return いずれかのキー名と一致する場合は {@code true}、それ以外は {@code false}
+     */
+    boolean matchesName(CharSequence text, int start, int end) {
+
+        final Node node = walk(this.names, text, start, end);
+
+        return node != null && node.terminal;
+    }
+
+    /**
+     * 引数として渡された節点から指定された範囲の文字で遷移した節点を返却します。
+     *
+     * @param from  遷移を開始する節点
+     * @param text  照合する文字列
+     * @param start 開始位置
+     * @param end   終了位置
+     * @return 遷移した節点、遷移できない場合は {@code null}
+     */
+    static Node walk(Node from, CharSequence text, int start, int end) {
+
+        Node node = from;
+
+        for (int i = start; i < end && node != null; i++) {
+            node = node.child(text.charAt(i));
+        }
+
+        return node;
+    }
+}
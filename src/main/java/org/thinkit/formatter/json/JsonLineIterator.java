@@ -0,0 +1,187 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.thinkit.formatter.common.Tokenizable;
+
+import lombok.NonNull;
+
+/**
+ * JSON文字列を整形した結果を1行ずつ返却するイテレータークラスです。
+ * <p>
+ * 次の行が要求された時点で、改行が出力されるまでトークンを1つずつ整形します。 {@link JsonFormatter#format(String)}
+ * メソッドの整形結果を改行で分割した結果と一致し、各行には改行コードを含みません。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class JsonLineIterator implements Iterator<String> {
+
+    /**
+     * JSONのトークナイザー
+     */
+    private Tokenizable tokenizer;
+
+    /**
+     * 整形結果を追加するアペンダー
+     */
+    private JsonAppender appender;
+
+    /**
+     * 最大行幅を考慮したレイアウト、最大行幅を設定しない場合は {@code null}
+     */
+    private JsonCompactLayout layout;
+
+    /**
+     * 出力された行を保持するバッファ
+     */
+    private final LineBuffer lines = new LineBuffer();
+
+    /**
+     * 全てのトークンを整形したか否か
+     */
+    private boolean finished;
+
+    /**
+     * 出力された行を保持するバッファクラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    private static final class LineBuffer implements Appendable {
+
+        /**
+         * 改行が出力されていない行
+         */
+        private final StringBuilder line = new StringBuilder();
+
+        /**
+         * 改行が出力された行
+         */
+        private final Deque<String> completed = new ArrayDeque<>();
+
+        @Override
+        public LineBuffer append(CharSequence csq) {
+            return this.append(csq, 0, csq.length());
+        }
+
+        @Override
+        public LineBuffer append(CharSequence csq, int start, int end) {
+
+            for (int i = start; i < end; i++) {
+                this.append(csq.charAt(i));
+            }
+
+            return this;
+        }
+
+        @Override
+        public LineBuffer append(char c) {
+
+            if (c != '\n') {
+                this.line.append(c);
+                return this;
+            }
+
+            final int length = this.line.length();
+
+            if (length > 0 && this.line.charAt(length - 1) == '\r') {
+                this.line.setLength(length - 1);
+            }
+
+            this.completed.add(this.line.toString());
+            this.line.setLength(0);
+
+            return this;
+        }
+    }
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonLineIterator() {
+    }
+
+    /**
+     * 引数として渡された値を基に {@link JsonLineIterator} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param tokenizer 整形されていないJSON文字列のトークナイザー
+     * @param indent    インデント数
+     * @param lineWidth 最大行幅、最大行幅を設定しない場合は {@code 0}
+     * @return {@link JsonLineIterator} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static JsonLineIterator of(@NonNull Tokenizable tokenizer, int indent, int lineWidth) {
+
+        final JsonLineIterator iterator = new JsonLineIterator();
+        iterator.tokenizer = tokenizer;
+        iterator.appender = JsonAppender.builder().register(iterator.tokenizer).withIndent(indent)
+                .withOutput(iterator.lines).build();
+
+        if (lineWidth > 0) {
+            iterator.layout = JsonCompactLayout.of(iterator.tokenizer, iterator.appender, lineWidth);
+        }
+
+        return iterator;
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        while (this.lines.completed.isEmpty() && !this.finished) {
+            this.advance();
+        }
+
+        return !this.lines.completed.isEmpty();
+    }
+
+    @Override
+    public String next() {
+
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return this.lines.completed.poll();
+    }
+
+    /**
+     * 次のトークンを整形します。全てのトークンを整形した場合は末尾の改行を出力します。
+     */
+    private void advance() {
+
+        final boolean appended;
+
+        if (this.layout != null) {
+            appended = this.layout.appendNext();
+        } else if (this.tokenizer.next()) {
+            JsonFormatter.appendCurrentToken(this.tokenizer, this.appender);
+            appended = true;
+        } else {
+            appended = false;
+        }
+
+        if (!appended) {
+            this.appender.appendNewline();
+            this.finished = true;
+        }
+    }
+}
@@ -0,0 +1,555 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.thinkit.formatter.common.Tokenizable;
+import org.thinkit.formatter.json.catalog.Brace;
+import org.thinkit.formatter.json.catalog.Bracket;
+import org.thinkit.formatter.json.catalog.Quotation;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 平文のログに埋め込まれたJSONオブジェクトを検出し、その範囲だけを整形するフォーマッタクラスです。
+ * <p>
+ * JSONを含まない文字列は {@code '{'} の検索のみで処理し、トークン解析は行いません。 {@code '{'}
+ * が見つかった場合は波括弧とダブルクォーテーションの対応だけを走査して候補となる範囲を特定し、 {@link JsonTokenizer}
+ * クラスで文法を検証できた範囲のみを {@link JsonFormatter} クラスで整形した結果に置き換えます。
+ * <p>
+ * {@link Builder#withNestedJson(boolean)} メソッドで {@code true} を指定した場合は、
+ * JSON文字列としてエスケープされた値に含まれるJSONも再帰的にエスケープを解除して整形します。
+ * {@link Builder#withRedactedKeys(Set)} メソッドでキー名またはパスを設定した場合は、 {@link JsonFormatter}
+ * クラスと同様に一致したキーの値を置換文字列に置き換えて整形します。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+@ToString
+@EqualsAndHashCode
+public final class JsonLogFormatter implements Formatter {
+
+    /**
+     * 1行あたりに走査する文字数の上限を行の長さに対する倍率で表した値
+     */
+    private static final int SCAN_BUDGET = 4;
+
+    /**
+     * JSONのフォーマッタ
+     */
+    private JsonFormatter formatter;
+
+    /**
+     * エスケープされたJSONを再帰的に整形するか否か
+     */
+    private boolean nestedJson;
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonLogFormatter() {
+    }
+
+    /**
+     * 既定の設定で {@link JsonLogFormatter} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @return {@link JsonLogFormatter} クラスの新しいインスタンス
+     */
+    public static JsonLogFormatter newInstance() {
+        return builder().build();
+    }
+
+    /**
+     * {@link JsonLogFormatter} クラスのインスタンスを生成する {@link Builder} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @return {@link Builder} クラスの新しいインスタンス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link JsonLogFormatter} クラスのインスタンスを生成する処理を定義したビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    public static class Builder {
+
+        /**
+         * インデント数
+         */
+        private int indent = -1;
+
+        /**
+         * 最大行幅
+         */
+        private int lineWidth;
+
+        /**
+         * エスケープされたJSONを再帰的に整形するか否か
+         */
+        private boolean nestedJson;
+
+        /**
+         * 値を置換文字列に置き換えるキー名とパス
+         */
+        private Set<String> redactedKeys = Set.of();
+
+        /**
+         * 置換文字列
+         */
+        private String redactionPlaceholder = "***";
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * インデント数を設定します。負数を設定した場合は既定のインデント数で整形します。
+         *
+         * @param indent インデント数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withIndent(int indent) {
+            this.indent = indent;
+            return this;
+        }
+
+        /**
+         * 最大行幅を設定します。最大行幅の扱いは {@link JsonFormatter.Builder#withLineWidth(int)} メソッドと同じです。
+         *
+         * @param lineWidth 最大行幅
+         * @return 自分自身のインスタンス
+         */
+        public Builder withLineWidth(int lineWidth) {
+            this.lineWidth = lineWidth;
+            return this;
+        }
+
+        /**
+         * JSON文字列としてエスケープされた値に含まれるJSONを再帰的に整形するか否かを設定します。
+         *
+         * @param nestedJson エスケープされたJSONを再帰的に整形する場合は {@code true}
+         * @return 自分自身のインスタンス
+         */
+        public Builder withNestedJson(boolean nestedJson) {
+            this.nestedJson = nestedJson;
+            return this;
+        }
+
+        /**
+         * 値を置換文字列に置き換えるキー名とパスを設定します。キー名とパスの扱いは
+         * {@link JsonFormatter.Builder#withRedactedKeys(Set)} メソッドと同じです。
+         *
+         * @param redactedKeys 値を置き換えるキー名とパス
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withRedactedKeys(@NonNull Set<String> redactedKeys) {
+            this.redactedKeys = redactedKeys;
+            return this;
+        }
+
+        /**
+         * 置き換えた値として出力する置換文字列を設定します。置換文字列はJSONの文字列として出力されます。
+         *
+         * @param redactionPlaceholder 置換文字列
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withRedactionPlaceholder(@NonNull String redactionPlaceholder) {
+            this.redactionPlaceholder = redactionPlaceholder;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link JsonLogFormatter} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link JsonLogFormatter} クラスの新しいインスタンス
+         *
+         * @exception IllegalArgumentException 最大行幅が負数の場合
+         */
+        public JsonLogFormatter build() {
+
+            final JsonLogFormatter logFormatter = new JsonLogFormatter();
+            logFormatter.formatter = JsonFormatter.builder().withIndent(this.indent).withLineWidth(this.lineWidth)
+                    .withRedactedKeys(this.redactedKeys).withRedactionPlaceholder(this.redactionPlaceholder).build();
+            logFormatter.nestedJson = this.nestedJson;
+
+            return logFormatter;
+        }
+    }
+
+    /**
+     * 引数として渡された {@code text} に含まれるJSONオブジェクトを整形し、それ以外の文字列はそのまま返却します。
+     * <p>
+     * JSONオブジェクトを含まない場合は引数として渡された文字列をそのまま返却します。
+     * 整形したJSONオブジェクトの末尾には改行を付与しないため、後続の文字列は閉じ波括弧の直後に続きます。
+     * <p>
+     * 候補の走査は1回の前方走査で入れ子になった全ての候補の範囲を特定するため、通常は文字列の長さに比例する時間で処理が完了します。
+     * 文字列の内部にある候補を探すための再走査は文字列の長さの一定倍までに制限し、上限に達した場合は残りの文字列をそのまま出力します。
+     *
+     * @param text ログの文字列
+     * @return JSONオブジェクトを整形したログの文字列
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    @Override
+    public String format(@NonNull final String text) {
+
+        int start = findCandidate(text, 0);
+
+        if (start < 0) {
+            return text;
+        }
+
+        final CandidateScanner scanner = new CandidateScanner(text);
+        final StringBuilder formatted = new StringBuilder(text.length() * 2);
+        final long budget = (long) SCAN_BUDGET * text.length();
+        long scanned = 0;
+        int copied = 0;
+
+        while (start >= 0 && scanned <= budget) {
+            final int stop = scanner.scan(start);
+            final int quoted = scanner.getQuotedCandidate();
+            final int limit = quoted < 0 ? stop : quoted;
+            int failure = -1;
+
+            scanned += stop - start;
+
+            for (int i = 0; i < scanner.size(); i++) {
+                final int open = scanner.getOpen(i);
+                final int end = scanner.getEnd(i);
+
+                if (open >= limit) {
+                    break;
+                }
+
+                // 外側の候補が内部で文法に反した位置を含む候補は、同じ位置で文法に反するため検証を省略する
+                if (open < copied || end < 0 || open < failure && failure < end || !isCandidate(text, open)) {
+                    continue;
+                }
+
+                final int error = JsonValidator.findError(text, open, end);
+
+                if (error >= 0) {
+                    failure = error;
+                    continue;
+                }
+
+                formatted.append(text, copied, open).append(this.formatObject(text.substring(open, end)));
+                copied = end;
+            }
+
+            if (quoted < 0) {
+                start = findCandidate(text, Math.max(stop, copied));
+            } else {
+                start = quoted >= copied ? quoted : findCandidate(text, copied);
+            }
+        }
+
+        return copied == 0 ? text : formatted.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * 検証済みのJSONオブジェクトを整形し、末尾の改行を取り除いて返却します。
+     *
+     * @param json 検証済みのJSONオブジェクト
+     * @return 整形されたJSONオブジェクト
+     */
+    private String formatObject(String json) {
+
+        final String formatted = this.formatter.format(this.nestedJson ? unescapeNestedJson(json) : json);
+        int end = formatted.length();
+
+        while (end > 0 && (formatted.charAt(end - 1) == '\n' || formatted.charAt(end - 1) == '\r')) {
+            end--;
+        }
+
+        return formatted.substring(0, end);
+    }
+
+    /**
+     * 引数として渡された {@code from} 以降で最初にJSONオブジェクトの候補となる {@code '{'} の位置を返却します。
+     *
+     * @param text ログの文字列
+     * @param from 検索の開始位置
+     * @return 候補となる {@code '{'} の位置、候補がない場合は {@code -1}
+     */
+    private static int findCandidate(String text, int from) {
+
+        int start = text.indexOf('{', from);
+
+        while (start >= 0 && !isCandidate(text, start)) {
+            start = text.indexOf('{', start + 1);
+        }
+
+        return start;
+    }
+
+    /**
+     * 引数として渡された {@code start} の位置にある文字がJSONオブジェクトの候補となる {@code '{'} であるかを判定します。
+     * <p>
+     * 開き波括弧の直後に空白以外でキーまたは閉じ波括弧が続かない場合は、JSONの候補ではないため {@code false} を返却します。
+     *
+     * @param text  ログの文字列
+     * @param start 判定する位置
+     * @return 候補となる {@code '{'} である場合は {@code true} 、それ以外は {@code false}
+     */
+    private static boolean isCandidate(String text, int start) {
+
+        if (text.charAt(start) != '{') {
+            return false;
+        }
+
+        int next = start + 1;
+
+        while (next < text.length() && Character.isWhitespace(text.charAt(next))) {
+            next++;
+        }
+
+        return next < text.length() && (text.charAt(next) == '"' || text.charAt(next) == '}');
+    }
+
+    /**
+     * JSONオブジェクトに含まれる文字列値のうち、エスケープを解除するとJSONになる値をエスケープを解除したJSONに置き換えます。
+     * 置き換えたJSONに含まれる文字列値も再帰的に処理します。
+     *
+     * @param json 検証済みのJSONオブジェクト
+     * @return エスケープされたJSONを置き換えたJSONオブジェクト
+     */
+    private static String unescapeNestedJson(String json) {
+
+        final Tokenizable tokenizer = JsonTokenizer.of(json);
+        final StringBuilder replaced = new StringBuilder(json.length());
+        String pending = null;
+
+        while (tokenizer.next()) {
+            final String token = tokenizer.getToken();
+
+            if (tokenizer.isWhitespace(token)) {
+                continue;
+            }
+
+            if (pending != null) {
+                replaced.append(":".equals(token) ? pending : replaceNestedJson(pending));
+                pending = null;
+            }
+
+            if (token.startsWith(Quotation.DOUBLE_QUOTATION.getTag())) {
+                pending = token;
+            } else {
+                replaced.append(token);
+            }
+        }
+
+        if (pending != null) {
+            replaced.append(replaceNestedJson(pending));
+        }
+
+        return replaced.toString();
+    }
+
+    /**
+     * エスケープを解除するとJSONのオブジェクトまたは配列になる文字列値をエスケープを解除したJSONに置き換えます。
+     *
+     * @param value JSON文字列の値
+     * @return エスケープを解除したJSON、JSONではない場合は引数として渡された値
+     */
+    private static String replaceNestedJson(String value) {
+
+        if (value.length() < 4 || value.indexOf('\\') < 0) {
+            return value;
+        }
+
+        final String unescaped = JsonTokenizer.unescape(value.substring(1, value.length() - 1)).strip();
+
+        if (!unescaped.startsWith(Brace.START.getTag()) && !unescaped.startsWith(Bracket.START.getTag())
+                || !JsonValidator.isValid(unescaped)) {
+            return value;
+        }
+
+        return unescapeNestedJson(unescaped);
+    }
+
+    /**
+     * 候補となる {@code '{'} から1回の前方走査で入れ子になった全ての括弧の範囲を特定するクラスです。
+     * <p>
+     * 開き括弧の位置を出現順に記録し、対応する閉じ括弧を見つけた時点でその直後の位置を記録します。
+     * 文字列の内部にある括弧は無視しますが、文字列の内部で最初に見つかった候補の位置は再走査の開始位置として保持します。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    private static final class CandidateScanner {
+
+        /**
+         * ログの文字列
+         */
+        private final String text;
+
+        /**
+         * 開き括弧の位置
+         */
+        private int[] opens = new int[16];
+
+        /**
+         * 対応する閉じ括弧の直後の位置、対応する閉じ括弧がない場合は {@code -1}
+         */
+        private int[] ends = new int[16];
+
+        /**
+         * 記録した開き括弧の数
+         */
+        private int size;
+
+        /**
+         * 閉じられていない開き括弧の記録番号
+         */
+        private int[] stack = new int[16];
+
+        /**
+         * 文字列の内部で最初に見つかった候補の位置
+         */
+        private int quotedCandidate;
+
+        /**
+         * コンストラクタ
+         *
+         * @param text ログの文字列
+         */
+        CandidateScanner(String text) {
+            this.text = text;
+        }
+
+        /**
+         * 引数として渡された {@code start} の位置にある {@code '{'} から、対応する {@code '}'} まで前方に走査します。
+         * <p>
+         * 括弧の種類が対応しない場合はその位置で走査を終了し、閉じられていない括弧の終了位置は {@code -1} のままとします。
+         *
+         * @param start {@code '{'} の位置
+         * @return 走査を終了した位置
+         */
+        int scan(int start) {
+
+            this.size = 0;
+            this.quotedCandidate = -1;
+
+            int depth = 0;
+            boolean inString = false;
+
+            for (int i = start; i < this.text.length(); i++) {
+                final char c = this.text.charAt(i);
+
+                if (inString) {
+                    if (c == '\\') {
+                        i++;
+                    } else if (c == '"') {
+                        inString = false;
+                    } else if (c == '{' && this.quotedCandidate < 0 && isCandidate(this.text, i)) {
+                        this.quotedCandidate = i;
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    this.push(i, depth++);
+                } else if (c == '}' || c == ']') {
+                    final int top = this.stack[depth - 1];
+
+                    if (this.text.charAt(this.opens[top]) != (c == '}' ? '{' : '[')) {
+                        return i + 1;
+                    }
+
+                    this.ends[top] = i + 1;
+
+                    if (--depth == 0) {
+                        return i + 1;
+                    }
+                }
+            }
+
+            return this.text.length();
+        }
+
+        /**
+         * 開き括弧の位置を記録します。
+         *
+         * @param open  開き括弧の位置
+         * @param depth 現在の深さ
+         */
+        private void push(int open, int depth) {
+
+            if (this.size == this.opens.length) {
+                this.opens = Arrays.copyOf(this.opens, this.size * 2);
+                this.ends = Arrays.copyOf(this.ends, this.size * 2);
+            }
+
+            if (depth == this.stack.length) {
+                this.stack = Arrays.copyOf(this.stack, depth * 2);
+            }
+
+            this.opens[this.size] = open;
+            this.ends[this.size] = -1;
+            this.stack[depth] = this.size++;
+        }
+
+        /**
+         * 記録した開き括弧の数を返却します。
+         *
+         * @return 記録した開き括弧の数
+         */
+        int size() {
+            return this.size;
+        }
+
+        /**
+         * 指定された記録番号の開き括弧の位置を返却します。
+         *
+         * @param index 記録番号
+         * @return 開き括弧の位置
+         */
+        int getOpen(int index) {
+            return this.opens[index];
+        }
+
+        /**
+         * 指定された記録番号の開き括弧に対応する閉じ括弧の直後の位置を返却します。
+         *
+         * @param index 記録番号
+         * @return 閉じ括弧の直後の位置、対応する閉じ括弧がない場合は {@code -1}
+         */
+        int getEnd(int index) {
+            return this.ends[index];
+        }
+
+        /**
+         * 直前の走査で文字列の内部に最初に見つかった候補の位置を返却します。
+         *
+         * @return 文字列の内部に最初に見つかった候補の位置、見つからなかった場合は {@code -1}
+         */
+        int getQuotedCandidate() {
+            return this.quotedCandidate;
+        }
+    }
+}
@@ -0,0 +1,724 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import lombok.NonNull;
+
+/**
+ * 整形済みのJSON文字列を固定長のチャンク単位で保持する出力バッファです。
+ * <p>
+ * {@link StringBuilder} と異なり、容量の拡張時に既存の内容を連続した領域へ再コピーしないため、 巨大なJSONを整形する際のヒープ負荷を抑えることができます。
+ * 保持している内容は {@link CharSequence} として参照する他に、 {@link #transferTo(WritableByteChannel)}
+ * メソッドで {@link String} を生成せずにUTF-8のバイト列としてチャネルへ書き出すことや、 {@link #newInputStream()}
+ * メソッドで {@link InputStream} として読み込むことができます。
+ * <p>
+ * {@link CharSequence} の仕様上、 {@link #length()} メソッドなどの {@code int} を扱うメソッドは
+ * {@link Integer#MAX_VALUE} を超える文字数を保持している場合に {@link ArithmeticException} が発生します。
+ * その場合は {@link #size()} メソッドと {@link #transferTo(WritableByteChannel)} メソッドを使用してください。
+ * <p>
+ * ヒープに保持するチャンクのバイト数に上限を設けた場合は、上限を超える度に最も古いチャンクを一時ファイルへ退避し、その配列を新しいチャンクとして再利用します。
+ * 退避したチャンクは各メソッドで参照する際に一時ファイルから読み込むため、呼び出し元は退避の有無を意識する必要はありません。 一時ファイルは
+ * {@link StandardOpenOption#DELETE_ON_CLOSE} で開き、バッファが参照されなくなりチャネルが解放された時点で削除されます。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+public final class JsonOutputBuffer implements CharSequence, Appendable {
+
+    /**
+     * チャンクの文字数を表すシフト量
+     */
+    private static final int CHUNK_SHIFT = 13;
+
+    /**
+     * チャンクの文字数
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /**
+     * チャンク内の位置を算出するマスク
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * チャンクのバイト数
+     */
+    private static final int CHUNK_BYTES = CHUNK_SIZE << 1;
+
+    /**
+     * 先頭チャンクの初期文字数
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * 転送時に使用するバイトバッファのサイズ
+     */
+    private static final int TRANSFER_BUFFER_SIZE = 8192;
+
+    /**
+     * チャンクのリスト、一時ファイルへ退避したチャンクは {@code null}
+     */
+    private final List<char[]> chunks;
+
+    /**
+     * ヒープに保持するチャンクの最大バイト数
+     */
+    private final long heapLimit;
+
+    /**
+     * 書き込み中のチャンク
+     */
+    private char[] current;
+
+    /**
+     * 書き込み中のチャンク内の位置
+     */
+    private int position;
+
+    /**
+     * 保持している文字数
+     */
+    private long size;
+
+    /**
+     * UTF-8のバイト数を数え終えた文字数
+     */
+    private long measuredChars;
+
+    /**
+     * 数え終えた文字をUTF-8でエンコードした場合のバイト数
+     */
+    private long measuredBytes;
+
+    /**
+     * 一時ファイルへ退避したチャンク数、退避したチャンクは常に先頭から連続する
+     */
+    private int spilledChunks;
+
+    /**
+     * 退避先の一時ファイルのチャネル、退避していない場合は {@code null}
+     */
+    private FileChannel spill;
+
+    /**
+     * 退避したチャンクを読み書きするバイトバッファ
+     */
+    private ByteBuffer spillBuffer;
+
+    /**
+     * 退避したチャンクを読み込んだキャッシュ
+     */
+    private char[] cache;
+
+    /**
+     * キャッシュしているチャンクのインデックス
+     */
+    private int cachedChunk = -1;
+
+    /**
+     * コンストラクタ
+     *
+     * @param heapLimit ヒープに保持するチャンクの最大バイト数
+     */
+    private JsonOutputBuffer(long heapLimit) {
+        this.chunks = new ArrayList<>();
+        this.current = new char[INITIAL_CAPACITY];
+        this.chunks.add(this.current);
+        this.heapLimit = heapLimit;
+    }
+
+    /**
+     * 全てのチャンクをヒープに保持する {@link JsonOutputBuffer} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @return {@link JsonOutputBuffer} クラスの新しいインスタンス
+     */
+    static JsonOutputBuffer newInstance() {
+        return newInstance(Long.MAX_VALUE);
+    }
+
+    /**
+     * ヒープに保持するチャンクのバイト数が {@code heapLimit} を超えた場合にチャンクを一時ファイルへ退避する {@link JsonOutputBuffer}
+     * クラスの新しいインスタンスを生成し返却します。 書き込み中のチャンクは上限に関わらずヒープに保持します。
+     *
+     * @param heapLimit ヒープに保持するチャンクの最大バイト数
+     * @return {@link JsonOutputBuffer} クラスの新しいインスタンス
+     */
+    static JsonOutputBuffer newInstance(long heapLimit) {
+        return new JsonOutputBuffer(heapLimit);
+    }
+
+    /**
+     * 保持している文字数を返却します。
+     *
+     * @return 保持している文字数
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * 保持している内容をUTF-8でエンコードした場合のバイト数を返却します。
+     * <p>
+     * 前回の呼び出し以降に追加された文字のみを数えるため、整形中に繰り返し呼び出しても全体を走査し直すことはありません。
+     * サロゲートは1文字あたり2バイトとして数えるため、サロゲートペアは4バイトになり、対になっていないサロゲートは実際の置換文字より多く数えます。
+     *
+     * @return 保持している内容をUTF-8でエンコードした場合のバイト数
+     */
+    long utf8Size() {
+
+        for (long offset = this.measuredChars; offset < this.size;) {
+            final char[] chunk = this.chunk((int) (offset >>> CHUNK_SHIFT));
+            final int from = (int) (offset & CHUNK_MASK);
+            final int to = from + (int) Math.min(this.size - offset, CHUNK_SIZE - from);
+
+            for (int i = from; i < to; i++) {
+                final char c = chunk[i];
+                this.measuredBytes += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+            }
+
+            offset += to - from;
+        }
+
+        this.measuredChars = this.size;
+
+        return this.measuredBytes;
+    }
+
+    @Override
+    public JsonOutputBuffer append(char c) {
+
+        if (this.position == this.current.length) {
+            this.grow();
+        }
+
+        this.current[this.position++] = c;
+        this.size++;
+
+        return this;
+    }
+
+    @Override
+    public JsonOutputBuffer append(CharSequence csq) {
+        return csq == null ? this.append("null") : this.append(csq, 0, csq.length());
+    }
+
+    @Override
+    public JsonOutputBuffer append(CharSequence csq, int start, int end) {
+
+        if (csq == null) {
+            return this.append("null", start, end);
+        }
+
+        Objects.checkFromToIndex(start, end, csq.length());
+
+        int offset = start;
+
+        while (offset < end) {
+            if (this.position == this.current.length) {
+                this.grow();
+            }
+
+            int count = Math.min(end - offset, this.current.length - this.position);
+
+            if (csq instanceof String) {
+                ((String) csq).getChars(offset, offset + count, this.current, this.position);
+            } else if (csq instanceof JsonOutputBuffer) {
+                count = Math.min(count, CHUNK_SIZE - (offset & CHUNK_MASK));
+                System.arraycopy(((JsonOutputBuffer) csq).chunk(offset >>> CHUNK_SHIFT), offset & CHUNK_MASK,
+                        this.current, this.position, count);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    this.current[this.position + i] = csq.charAt(offset + i);
+                }
+            }
+
+            offset += count;
+            this.position += count;
+            this.size += count;
+        }
+
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return Math.toIntExact(this.size);
+    }
+
+    @Override
+    public char charAt(int index) {
+        Objects.checkIndex(index, this.length());
+        return this.chunk(index >>> CHUNK_SHIFT)[index & CHUNK_MASK];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        Objects.checkFromToIndex(start, end, this.length());
+        return new String(this.copyOf(start, end));
+    }
+
+    /**
+     * 保持している内容をUTF-8でエンコードし引数として渡された {@code channel} へ書き出します。
+     * <p>
+     * 内容はチャンク単位でエンコードされるため、出力全体を {@link String} やバイト配列として生成することはありません。
+     *
+     * @param channel 書き込み先のチャネル
+     * @return 書き込んだバイト数
+     *
+     * @throws IOException          チャネルへの書き込みに失敗した場合
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public long transferTo(@NonNull WritableByteChannel channel) throws IOException {
+
+        final Utf8Encoder encoder = new Utf8Encoder();
+        final ByteBuffer bytes = ByteBuffer.allocate(TRANSFER_BUFFER_SIZE);
+
+        long written = 0;
+        boolean done;
+
+        do {
+            done = encoder.encode(bytes);
+            written += this.flush(bytes, channel);
+        } while (!done);
+
+        return written;
+    }
+
+    /**
+     * 保持している内容をUTF-8でエンコードしたバイト列として読み込む {@link InputStream} を返却します。
+     * <p>
+     * 内容は読み込まれる度にチャンク単位でエンコードされるため、出力全体を {@link String} やバイト配列として生成することはありません。 返却された
+     * {@link InputStream} は生成時点の内容を読み込むため、読み込み中にこのバッファへ追加しないでください。
+     *
+     * @return 保持している内容をUTF-8で読み込む {@link InputStream}
+     */
+    public InputStream newInputStream() {
+        return new Utf8InputStream();
+    }
+
+    /**
+     * 保持している内容を {@link String} として返却します。
+     * <p>
+     * 内容が先頭チャンクに収まる場合はチャンクから直接 {@link String} を生成するため、内容のコピーは1回です。 それ以外の場合は保持している文字数で容量を確保した
+     * {@link StringBuilder} へチャンクを順に追加してから {@link String} を生成するため、容量の拡張による再コピーは発生しませんが、
+     * 内容はチャンクから {@link StringBuilder} へ、 {@link StringBuilder} から {@link String} への2回コピーされます。
+     * 巨大な整形結果を出力する場合は {@link String} を生成せずに {@link #transferTo(WritableByteChannel)} メソッドまたは
+     * {@link #newInputStream()} メソッドを使用してください。
+     *
+     * @return 保持している内容
+     */
+    @Override
+    public String toString() {
+
+        if (this.chunks.size() == 1) {
+            return new String(this.current, 0, this.position);
+        }
+
+        final StringBuilder builder = new StringBuilder(this.length());
+
+        for (int i = 0, last = this.chunks.size() - 1; i <= last; i++) {
+            builder.append(this.chunk(i), 0, i == last ? this.position : CHUNK_SIZE);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * 書き込み先のチャンクを拡張します。
+     * <p>
+     * 先頭チャンクは既定のチャンクサイズに達するまで倍々に拡張し、それ以降は固定長のチャンクを追加します。
+     */
+    private void grow() {
+
+        if (this.current.length < CHUNK_SIZE) {
+            this.current = Arrays.copyOf(this.current, Math.min(this.current.length << 1, CHUNK_SIZE));
+            this.chunks.set(0, this.current);
+            return;
+        }
+
+        final boolean exceeded = (long) (this.chunks.size() - this.spilledChunks + 1) * CHUNK_BYTES > this.heapLimit;
+
+        this.current = exceeded ? this.spillOldest() : new char[CHUNK_SIZE];
+        this.chunks.add(this.current);
+        this.position = 0;
+    }
+
+    /**
+     * ヒープに保持している最も古いチャンクを一時ファイルへ退避し、再利用できるようになった配列を返却します。
+     *
+     * @return 退避したチャンクの配列
+     *
+     * @exception UncheckedIOException 一時ファイルの作成または書き込みに失敗した場合
+     */
+    private char[] spillOldest() {
+
+        final int index = this.spilledChunks;
+        final char[] chunk = this.chunks.get(index);
+
+        try {
+            if (this.spill == null) {
+                this.spill = FileChannel.open(Files.createTempFile("json-output", ".tmp"), StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+                this.spillBuffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.nativeOrder());
+            }
+
+            final ByteBuffer bytes = this.spillBuffer.clear();
+            bytes.asCharBuffer().put(chunk);
+
+            while (bytes.hasRemaining()) {
+                this.spill.write(bytes, (long) index * CHUNK_BYTES + bytes.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.chunks.set(index, null);
+        this.spilledChunks++;
+
+        return chunk;
+    }
+
+    /**
+     * 指定されたチャンクを返却します。一時ファイルへ退避したチャンクは読み込んだ内容をキャッシュして返却します。
+     *
+     * @param index チャンクのインデックス
+     * @return チャンク
+     *
+     * @exception UncheckedIOException 一時ファイルの読み込みに失敗した場合
+     */
+    private char[] chunk(int index) {
+
+        if (index >= this.spilledChunks) {
+            return this.chunks.get(index);
+        }
+
+        if (this.cachedChunk != index) {
+            if (this.cache == null) {
+                this.cache = new char[CHUNK_SIZE];
+            }
+
+            this.readSpilled(index, this.cache);
+            this.cachedChunk = index;
+        }
+
+        return this.cache;
+    }
+
+    /**
+     * 一時ファイルへ退避したチャンクを引数として渡された配列へ読み込みます。
+     *
+     * @param index チャンクのインデックス
+     * @param chunk 読み込み先の配列
+     * @return 読み込み先の配列
+     *
+     * @exception UncheckedIOException 一時ファイルの読み込みに失敗した場合
+     */
+    private char[] readSpilled(int index, char[] chunk) {
+
+        final ByteBuffer bytes = this.spillBuffer.clear();
+
+        try {
+            while (bytes.hasRemaining()) {
+                if (this.spill.read(bytes, (long) index * CHUNK_BYTES + bytes.position()) < 0) {
+                    throw new EOFException(String.format("The spilled chunk %d is truncated.", index));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        bytes.flip().asCharBuffer().get(chunk);
+
+        return chunk;
+    }
+
+    /**
+     * 指定された範囲の文字を新しい配列へコピーし返却します。
+     *
+     * @param start 開始位置
+     * @param end   終了位置
+     * @return 指定された範囲の文字を格納した配列
+     */
+    private char[] copyOf(int start, int end) {
+
+        final char[] copy = new char[end - start];
+
+        for (int offset = start; offset < end;) {
+            final int count = Math.min(end - offset, CHUNK_SIZE - (offset & CHUNK_MASK));
+            System.arraycopy(this.chunk(offset >>> CHUNK_SHIFT), offset & CHUNK_MASK, copy, offset - start, count);
+            offset += count;
+        }
+
+        return copy;
+    }
+
+    /**
+     * バイトバッファの内容をチャネルへ書き出しバイトバッファを空にします。
+     *
+     * @param bytes   書き出すバイトバッファ
+     * @param channel 書き込み先のチャネル
+     * @return チャネルへ書き込んだバイト数
+     *
+     * @throws IOException チャネルへの書き込みに失敗した場合
+     */
+    private long flush(ByteBuffer bytes, WritableByteChannel channel) throws IOException {
+
+        long written = 0;
+
+        for (bytes.flip(); bytes.hasRemaining();) {
+            written += channel.write(bytes);
+        }
+
+        bytes.clear();
+
+        return written;
+    }
+
+    /**
+     * 保持している内容をチャンク単位でUTF-8へエンコードするクラスです。
+     * <p>
+     * チャンクの境界で分割されたサロゲートペアは、次のチャンクの先頭の文字と合わせてエンコードします。
+     */
+    private final class Utf8Encoder {
+
+        /**
+         * エンコーダー
+         */
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        /**
+         * チャンクの境界で分割されたサロゲートペアを保持するバッファ
+         */
+        private final CharBuffer carry = CharBuffer.allocate(2);
+
+        /**
+         * 生成時点の最終チャンクのインデックス
+         */
+        private final int last;
+
+        /**
+         * 生成時点の最終チャンク内の位置
+         */
+        private final int end;
+
+        /**
+         * 次にエンコードするチャンクのインデックス
+         */
+        private int next;
+
+        /**
+         * エンコード中のチャンク
+         */
+        private CharBuffer chars;
+
+        /**
+         * エンコード中の文字バッファ
+         */
+        private CharBuffer pending;
+
+        /**
+         * 一時ファイルへ退避したチャンクを読み込む配列
+         */
+        private char[] scratch;
+
+        /**
+         * 入力の終端に達したか否か
+         */
+        private boolean endOfInput;
+
+        /**
+         * エンコーダーの内部状態を書き出しているか否か
+         */
+        private boolean flushing;
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Utf8Encoder() {
+            this.last = chunks.size() - 1;
+            this.end = position;
+            this.chars = this.wrap(0);
+            this.pending = this.chars;
+            this.next = 1;
+        }
+
+        /**
+         * 続きの内容をエンコードし引数として渡された {@code bytes} へ格納します。
+         *
+         * @param bytes エンコード結果を格納するバイトバッファ
+         * @return 全ての内容をエンコードし終えた場合は {@code true} 、 {@code bytes} が満杯になった場合は {@code false}
+         *
+         * @throws CharacterCodingException エンコードに失敗した場合
+         */
+        private boolean encode(ByteBuffer bytes) throws CharacterCodingException {
+
+            while (!this.flushing) {
+                final CoderResult result = this.encoder.encode(this.pending, bytes, this.endOfInput);
+
+                if (result.isOverflow()) {
+                    return false;
+                } else if (result.isError()) {
+                    throw new CharacterCodingException();
+                }
+
+                if (this.endOfInput) {
+                    this.flushing = true;
+                } else if (this.pending == this.carry) {
+                    this.chars.position(this.chars.position() - this.carry.remaining());
+                    this.carry.clear();
+                    this.pending = this.chars;
+                } else {
+                    if (this.chars.hasRemaining()) {
+                        this.carry.put(this.chars.get());
+                    }
+
+                    this.advance();
+                }
+            }
+
+            return !this.encoder.flush(bytes).isOverflow();
+        }
+
+        /**
+         * 次のチャンクをエンコード対象にします。最後のチャンクまでエンコードした場合は保持しているサロゲートを入力の終端としてエンコード対象にします。
+         */
+        private void advance() {
+
+            if (this.next > this.last) {
+                this.endOfInput = true;
+                this.pending = this.carry.flip();
+                return;
+            }
+
+            this.chars = this.wrap(this.next++);
+            this.pending = this.chars;
+
+            if (this.carry.position() > 0 && this.chars.hasRemaining()) {
+                this.pending = this.carry.put(this.chars.get()).flip();
+            }
+        }
+
+        /**
+         * 指定されたチャンクのうち生成時点で書き込まれていた範囲を文字バッファとして返却します。
+         *
+         * @param index チャンクのインデックス
+         * @return チャンクの文字バッファ
+         */
+        private CharBuffer wrap(int index) {
+
+            char[] chunk = chunks.get(index);
+
+            if (index < spilledChunks) {
+                if (this.scratch == null) {
+                    this.scratch = new char[CHUNK_SIZE];
+                }
+
+                chunk = readSpilled(index, this.scratch);
+            }
+
+            return CharBuffer.wrap(chunk, 0, index == this.last ? this.end : chunk.length);
+        }
+    }
+
+    /**
+     * 保持している内容をUTF-8のバイト列として読み込む {@link InputStream} です。
+     */
+    private final class Utf8InputStream extends InputStream {
+
+        /**
+         * エンコーダー
+         */
+        private final Utf8Encoder encoder = new Utf8Encoder();
+
+        /**
+         * エンコード済みで未読のバイトを保持するバッファ
+         */
+        private final ByteBuffer bytes = ByteBuffer.allocate(TRANSFER_BUFFER_SIZE).flip();
+
+        /**
+         * 全ての内容をエンコードし終えたか否か
+         */
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            return this.fill() ? this.bytes.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+
+            Objects.checkFromIndexSize(off, len, b.length);
+
+            if (len == 0) {
+                return 0;
+            }
+
+            if (!this.fill()) {
+                return -1;
+            }
+
+            final int count = Math.min(len, this.bytes.remaining());
+            this.bytes.get(b, off, count);
+
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return this.bytes.remaining();
+        }
+
+        /**
+         * 未読のバイトがない場合は続きの内容をエンコードします。
+         *
+         * @return 未読のバイトがある場合は {@code true}
+         *
+         * @throws IOException エンコードに失敗した場合
+         */
+        private boolean fill() throws IOException {
+
+            while (!this.bytes.hasRemaining() && !this.done) {
+                this.bytes.clear();
+                this.done = this.encoder.encode(this.bytes);
+                this.bytes.flip();
+            }
+
+            return this.bytes.hasRemaining();
+        }
+    }
+}
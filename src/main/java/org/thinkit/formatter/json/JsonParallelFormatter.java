@@ -0,0 +1,475 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.thinkit.formatter.common.Tokenizable;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 1つの巨大なJSON文字列を固定長のチャンクに分割し、複数のスレッドで並列に整形するフォーマッタクラスです。
+ * <p>
+ * チャンクの境界が文字列の内部にあるかどうかは先行するチャンクを走査しなければ分からないため、整形は以下の2段階で行います。
+ *
+ * <ol>
+ * <li>各チャンクを「文字列の外側から始まる」場合と「文字列の内側から始まる」場合の両方を仮定して並列に走査し、
+ * それぞれの仮定における終了時の状態と階層の増減を記録します。</li>
+ * <li>先頭のチャンクから順に実際の開始状態と階層を確定させ、各チャンクを並列に整形した結果を連結します。</li>
+ * </ol>
+ *
+ * チャンクの境界は {@code ' '} や {@code ','} などの区切り文字の位置に調整するため、
+ * エスケープの途中で分割されることはありません。 整形結果は {@link JsonFormatter#format(String)} メソッドと一致します。
+ * 閉じられていない文字列や対応しない閉じ括弧を含むJSON文字列は {@link JsonFormatter} クラスで逐次的に整形します。
+ * <p>
+ * 入力は {@link CharSequence} として受け取りチャンクの位置を {@code int} で保持するため、整形できるJSON文字列は
+ * {@link Integer#MAX_VALUE} 文字（UTF-16で約4GB）までです。 それを超える巨大なJSONは、文字列として読み込まずにファイルやチャネルから逐次的に整形してください。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+@ToString
+@EqualsAndHashCode
+public final class JsonParallelFormatter implements Formatter {
+
+    /**
+     * チャンクの境界に使用する区切り文字
+     */
+    private static final String BOUNDARIES = "{}[]:, ";
+
+    /**
+     * インデント数
+     */
+    private int indent;
+
+    /**
+     * チャンクの文字数
+     */
+    private int chunkSize;
+
+    /**
+     * チャンクを処理するエグゼキューター
+     */
+    private Executor executor;
+
+    /**
+     * 整形結果のバッファがヒープに保持するチャンクの最大バイト数
+     */
+    private long heapLimit;
+
+    /**
+     * チャンクを走査した結果を保持するクラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    private static final class Speculation {
+
+        /**
+         * 文字列の内側から始まると仮定したか否か
+         */
+        private final boolean startsInString;
+
+        /**
+         * 文字列の内側で終わるか否か
+         */
+        private final boolean endsInString;
+
+        /**
+         * 階層の増減
+         */
+        private final int delta;
+
+        /**
+         * 走査中の最小の階層
+         */
+        private final int minDepth;
+
+        /**
+         * 最後に開始した文字列の位置
+         */
+        private final int stringStart;
+
+        /**
+         * コンストラクタ
+         *
+         * @param startsInString 文字列の内側から始まると仮定したか否か
+         * @param endsInString   文字列の内側で終わるか否か
+         * @param delta          階層の増減
+         * @param minDepth       走査中の最小の階層
+         * @param stringStart    最後に開始した文字列の位置
+         */
+        private Speculation(boolean startsInString, boolean endsInString, int delta, int minDepth,
+                int stringStart) {
+            this.startsInString = startsInString;
+            this.endsInString = endsInString;
+            this.delta = delta;
+            this.minDepth = minDepth;
+            this.stringStart = stringStart;
+        }
+    }
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonParallelFormatter() {
+    }
+
+    /**
+     * 既定の設定で {@link JsonParallelFormatter} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @return {@link JsonParallelFormatter} クラスの新しいインスタンス
+     */
+    public static JsonParallelFormatter newInstance() {
+        return builder().build();
+    }
+
+    /**
+     * {@link JsonParallelFormatter} クラスのインスタンスを生成する {@link Builder} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @return {@link Builder} クラスの新しいインスタンス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link JsonParallelFormatter} クラスのインスタンスを生成する処理を定義したビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    public static class Builder {
+
+        /**
+         * インデント数
+         */
+        private int indent = -1;
+
+        /**
+         * チャンクの文字数
+         */
+        private int chunkSize = 1 << 20;
+
+        /**
+         * チャンクを処理するエグゼキューター
+         */
+        private Executor executor = ForkJoinPool.commonPool();
+
+        /**
+         * 整形結果のバッファがヒープに保持するチャンクの最大バイト数
+         */
+        private long heapLimit = Long.MAX_VALUE;
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * インデント数を設定します。負数を設定した場合は既定のインデント数で整形します。
+         *
+         * @param indent インデント数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withIndent(int indent) {
+            this.indent = indent;
+            return this;
+        }
+
+        /**
+         * 1つのスレッドが処理するチャンクの文字数を設定します。 この文字数以下のJSON文字列は分割せずに整形します。
+         *
+         * @param chunkSize チャンクの文字数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * チャンクを処理するエグゼキューターを設定します。 既定では {@link ForkJoinPool#commonPool()} を使用します。
+         *
+         * @param executor チャンクを処理するエグゼキューター
+         * @return 自分自身のインスタンス
+         *
+         * @exception NullPointerException 引数として {@code null} が渡された場合
+         */
+        public Builder withExecutor(@NonNull Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * 整形結果を保持する {@link JsonOutputBuffer} がヒープに保持するチャンクの最大バイト数を設定します。
+         * 上限を超えたチャンクは古いものから一時ファイルへ退避します。 既定では上限を設けません。
+         * 並列に整形した各チャンクの整形結果は連結するまでヒープに保持し、連結した後に解放します。
+         *
+         * @param heapLimit ヒープに保持するチャンクの最大バイト数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withHeapLimit(long heapLimit) {
+            this.heapLimit = heapLimit;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link JsonParallelFormatter} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link JsonParallelFormatter} クラスの新しいインスタンス
+         */
+        public JsonParallelFormatter build() {
+
+            if (this.chunkSize < 1) {
+                throw new IllegalArgumentException(String.format("Invalid chunk size: %d", this.chunkSize));
+            }
+
+            if (this.heapLimit < 1) {
+                throw new IllegalArgumentException(String.format("Invalid heap limit: %d", this.heapLimit));
+            }
+
+            final JsonParallelFormatter parallelFormatter = new JsonParallelFormatter();
+            parallelFormatter.indent = this.indent;
+            parallelFormatter.chunkSize = this.chunkSize;
+            parallelFormatter.executor = this.executor;
+            parallelFormatter.heapLimit = this.heapLimit;
+
+            return parallelFormatter;
+        }
+    }
+
+    @Override
+    public String format(@NonNull final String json) {
+        return this.format((CharSequence) json);
+    }
+
+    @Override
+    public String format(@NonNull final CharSequence json) {
+        return json.length() == 0 ? "" : this.formatToBuffer(json).toString();
+    }
+
+    /**
+     * 引数として渡された {@code json} 文字列をチャンク単位で並列に整形し、整形結果を保持する {@link JsonOutputBuffer} を返却します。
+     *
+     * @param json 整形されていないJSON文字列
+     * @return 整形結果を保持する {@link JsonOutputBuffer}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public JsonOutputBuffer formatToBuffer(@NonNull final CharSequence json) {
+
+        final int[] boundaries = this.split(json);
+        final int chunks = boundaries.length - 1;
+
+        if (chunks < 2) {
+            return this.formatSequentially(json);
+        }
+
+        final List<CompletableFuture<Speculation[]>> scans = new ArrayList<>(chunks);
+
+        for (int i = 0; i < chunks; i++) {
+            final int start = boundaries[i];
+            final int end = boundaries[i + 1];
+
+            scans.add(CompletableFuture.supplyAsync(
+                    () -> new Speculation[] { scan(json, start, end, false), scan(json, start, end, true) },
+                    this.executor));
+        }
+
+        final Speculation[] resolved = new Speculation[chunks];
+        final int[] depths = new int[chunks];
+        boolean inString = false;
+        int depth = 0;
+
+        for (int i = 0; i < chunks; i++) {
+            final Speculation speculation = scans.get(i).join()[inString ? 1 : 0];
+
+            if (depth + speculation.minDepth < 0) {
+                return this.formatSequentially(json);
+            }
+
+            resolved[i] = speculation;
+            depths[i] = depth;
+            depth += speculation.delta;
+            inString = speculation.endsInString;
+        }
+
+        if (inString) {
+            return this.formatSequentially(json);
+        }
+
+        final List<CompletableFuture<JsonOutputBuffer>> emits = new ArrayList<>(chunks);
+
+        for (int i = 0; i < chunks; i++) {
+            final int start = boundaries[i];
+            final int end = boundaries[i + 1];
+            final Speculation speculation = resolved[i];
+            final int chunkDepth = depths[i];
+            final boolean last = i == chunks - 1;
+
+            emits.add(CompletableFuture.supplyAsync(
+                    () -> this.emit(json, start, end, speculation, chunkDepth, last), this.executor));
+        }
+
+        final JsonOutputBuffer formatted = JsonOutputBuffer.newInstance(this.heapLimit);
+
+        for (int i = 0; i < chunks; i++) {
+            formatted.append(emits.get(i).join());
+            emits.set(i, null);
+        }
+
+        return formatted;
+    }
+
+    /**
+     * 引数として渡された {@code json} 文字列を分割せずに {@link JsonFormatter} クラスで整形し、整形結果を保持する
+     * {@link JsonOutputBuffer} を返却します。
+     *
+     * @param json 整形されていないJSON文字列
+     * @return 整形結果を保持する {@link JsonOutputBuffer}
+     */
+    private JsonOutputBuffer formatSequentially(CharSequence json) {
+        return JsonFormatter.builder().withIndent(this.indent).withHeapLimit(this.heapLimit).build().formatToBuffer(json);
+    }
+
+    /**
+     * 引数として渡された {@code json} 文字列をチャンクに分割し、各チャンクの開始位置と終端の位置を返却します。
+     * <p>
+     * チャンクの開始位置は既定の文字数以降で最初に現れる区切り文字の位置に調整します。 入力が {@link Integer#MAX_VALUE}
+     * 文字に近く次の開始位置が桁あふれした場合は、そこで分割を終了します。
+     *
+     * @param json JSON文字列
+     * @return 各チャンクの開始位置と終端の位置
+     */
+    private int[] split(CharSequence json) {
+
+        final List<Integer> boundaries = new ArrayList<>();
+        boundaries.add(0);
+
+        for (int boundary = this.chunkSize; boundary > 0 && boundary < json.length(); boundary += this.chunkSize) {
+            while (boundary < json.length() && BOUNDARIES.indexOf(json.charAt(boundary)) < 0) {
+                boundary++;
+            }
+
+            if (boundary < json.length()) {
+                boundaries.add(boundary);
+            }
+        }
+
+        boundaries.add(json.length());
+
+        return boundaries.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 指定された範囲を走査し、文字列の内側で終わるか否かと階層の増減を返却します。
+     *
+     * @param json     JSON文字列
+     * @param start    チャンクの開始位置
+     * @param end      チャンクの終了位置
+     * @param inString 文字列の内側から始まると仮定する場合は {@code true}
+     * @return 走査結果
+     */
+    private static Speculation scan(CharSequence json, int start, int end, boolean inString) {
+
+        boolean string = inString;
+        int depth = 0;
+        int minDepth = 0;
+        int stringStart = inString ? start : -1;
+
+        for (int i = start; i < end; i++) {
+            final char c = json.charAt(i);
+
+            if (string) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    string = false;
+                }
+            } else if (c == '"') {
+                string = true;
+                stringStart = i;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                minDepth = Math.min(minDepth, --depth);
+            }
+        }
+
+        return new Speculation(inString, string, depth, minDepth, stringStart);
+    }
+
+    /**
+     * 確定した開始状態と階層を基に1つのチャンクを整形します。
+     * <p>
+     * チャンクの前後にまたがる文字列の断片は整形せずにそのまま出力し、それ以外の範囲を {@link JsonFormatter} クラスと同じ規則で整形します。
+     *
+     * @param json        JSON文字列
+     * @param start       チャンクの開始位置
+     * @param end         チャンクの終了位置
+     * @param speculation 確定した開始状態における走査結果
+     * @param depth       チャンクの開始時点の階層
+     * @param last        最後のチャンクである場合は {@code true}
+     * @return チャンクの整形結果
+     */
+    private JsonOutputBuffer emit(CharSequence json, int start, int end, Speculation speculation, int depth,
+            boolean last) {
+
+        final int from = speculation.startsInString ? skipString(json, start, end) : start;
+        final int to = speculation.endsInString ? Math.max(from, speculation.stringStart) : end;
+
+        final Tokenizable tokenizer = JsonTokenizer.of(json, from, to);
+        final JsonAppender appender = JsonAppender.builder().register(tokenizer).withIndent(this.indent)
+                .withDepth(depth).build();
+
+        appender.append(json, start, from);
+        JsonFormatter.appendTokens(tokenizer, appender);
+        appender.append(json, to, end);
+
+        return last ? appender.appendNewline().toBuffer() : appender.toBuffer();
+    }
+
+    /**
+     * 文字列の内側にある位置から文字列の終端を探し、終端のダブルクォーテーションの直後の位置を返却します。
+     *
+     * @param json  JSON文字列
+     * @param start 走査の開始位置
+     * @param end   走査の終了位置
+     * @return 文字列の終端の直後の位置、終端が見つからない場合は {@code end}
+     */
+    private static int skipString(CharSequence json, int start, int end) {
+
+        for (int i = start; i < end; i++) {
+            final char c = json.charAt(i);
+
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i + 1;
+            }
+        }
+
+        return end;
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.thinkit.formatter.common.Tokenizable;
+import org.thinkit.formatter.json.catalog.Brace;
+import org.thinkit.formatter.json.catalog.Bracket;
+import org.thinkit.formatter.json.catalog.Delimiter;
+import org.thinkit.formatter.json.catalog.Quotation;
+
+import lombok.NonNull;
+
+/**
+ * 指定されたキーの値を置換文字列に置き換えるトークナイザーです。
+ * <p>
+ * 委譲先のトークナイザーから読み込んだトークンの構造を追跡し、 {@link JsonKeyTrie} と一致したキーの値を1つの置換文字列のトークンとして返却します。
+ * 値がオブジェクトまたは配列の場合は、その終端までのトークンを読み飛ばします。 フォーマッタは置換後のトークンを整形するため、
+ * 整形と同じ1回の走査で値を置き換えることができます。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class JsonRedactingTokenizer implements Tokenizable {
+
+    /**
+     * コロン
+     */
+    private static final String COLON = ":";
+
+    /**
+     * 委譲先のトークナイザー
+     */
+    private Tokenizable tokenizer;
+
+    /**
+     * 置き換えるキーのトライ木
+     */
+    private JsonKeyTrie trie;
+
+    /**
+     * 置換文字列のトークン
+     */
+    private String placeholder;
+
+    /**
+     * 処理中のコンテナ
+     */
+    private final Deque<Container> containers = new ArrayDeque<>();
+
+    /**
+     * トークン
+     */
+    private String token;
+
+    /**
+     * 小文字のトークン
+     */
+    private String lowercaseToken;
+
+    /**
+     * 直前のキーが置き換え対象であるか否か
+     */
+    private boolean redactedKey;
+
+    /**
+     * 次の値を置き換えるか否か
+     */
+    private boolean redactNext;
+
+    /**
+     * 処理中のコンテナを表すクラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    private static final class Container {
+
+        /**
+         * オブジェクトであるか否か
+         */
+        private final boolean object;
+
+        /**
+         * 子のキーを照合するパスの節点
+         */
+        private final JsonKeyTrie.Node path;
+
+        /**
+         * 次のトークンがキーであるか否か
+         */
+        private boolean expectKey;
+
+        /**
+         * 直前のキーで遷移したパスの節点
+         */
+        private JsonKeyTrie.Node key;
+
+        /**
+         * コンストラクタ
+         *
+         * @param object オブジェクトであるか否か
+         * @param path   子のキーを照合するパスの節点
+         */
+        private Container(boolean object, JsonKeyTrie.Node path) {
+            this.object = object;
+            this.path = path;
+            this.expectKey = object;
+        }
+    }
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonRedactingTokenizer() {
+    }
+
+    /**
+     * 引数として渡された値を基に {@link JsonRedactingTokenizer} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param tokenizer   委譲先のトークナイザー
+     * @param trie        置き換えるキーのトライ木
+     * @param placeholder 置換文字列のトークン
+     * @return {@link JsonRedactingTokenizer} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static Tokenizable of(@NonNull Tokenizable tokenizer, @NonNull JsonKeyTrie trie,
+            @NonNull String placeholder) {
+
+        final JsonRedactingTokenizer redactingTokenizer = new JsonRedactingTokenizer();
+        redactingTokenizer.tokenizer = tokenizer;
+        redactingTokenizer.trie = trie;
+        redactingTokenizer.placeholder = placeholder;
+
+        return redactingTokenizer;
+    }
+
+    @Override
+    public boolean next() {
+
+        if (!this.tokenizer.next()) {
+            return false;
+        }
+
+        this.token = this.tokenizer.getToken();
+        this.lowercaseToken = this.tokenizer.getLowercaseToken();
+
+        if (this.tokenizer.isWhitespace(this.token)) {
+            return true;
+        }
+
+        if (this.redactNext) {
+            this.redactNext = false;
+
+            if (isStart(this.token)) {
+                this.skipContainer();
+            }
+
+            this.token = this.placeholder;
+            this.lowercaseToken = Quotation.DOUBLE_QUOTATION.getTag();
+
+            return true;
+        }
+
+        final Container container = this.containers.peek();
+
+        if (isStart(this.token)) {
+            this.containers.push(new Container(Brace.START.getTag().equals(this.token), this.childPath(container)));
+        } else if (Brace.END.getTag().equals(this.token) || Bracket.END.getTag().equals(this.token)) {
+            if (container != null) {
+                this.containers.pop();
+            }
+        } else if (Delimiter.COMMA.getTag().equals(this.token)) {
+            if (container != null && container.object) {
+                container.expectKey = true;
+            }
+        } else if (COLON.equals(this.token)) {
+            this.redactNext = this.redactedKey;
+            this.redactedKey = false;
+        } else if (container != null && container.expectKey) {
+            container.expectKey = false;
+            this.matchKey(container);
+        }
+
+        return true;
+    }
+
+    @Override
+    public String getToken() {
+        return this.token;
+    }
+
+    @Override
+    public String getLowercaseToken() {
+        return this.lowercaseToken;
+    }
+
+    @Override
+    public String getLastToken() {
+        return this.tokenizer.getLastToken();
+    }
+
+    @Override
+    public boolean isWhitespace(String token) {
+        return this.tokenizer.isWhitespace(token);
+    }
+
+    /**
+     * 現在のトークンをキーとして照合し、置き換え対象であるかを判定します。
+     * <p>
+     * エスケープシーケンスを含むキーは {@code "pass\/word"} のように表記が異なる場合でも同じキーとして照合できるようにエスケープを解除してから照合します。
+     * エスケープシーケンスを含まないキーはトークンの範囲をそのまま照合します。
+     *
+     * @param container キーを含むオブジェクト
+     */
+    private void matchKey(Container container) {
+
+        final int end = this.token.length() - 1;
+
+        if (end < 1 || !this.token.startsWith(Quotation.DOUBLE_QUOTATION.getTag())) {
+            container.key = null;
+            this.redactedKey = false;
+            return;
+        }
+
+        String key = this.token;
+        int keyStart = 1;
+        int keyEnd = end;
+
+        if (this.token.indexOf('\\', keyStart) >= 0) {
+            key = JsonTokenizer.unescape(this.token.substring(keyStart, keyEnd));
+            keyStart = 0;
+            keyEnd = key.length();
+        }
+
+        container.key = container.path == null ? null : JsonKeyTrie.walk(container.path, key, keyStart, keyEnd);
+        this.redactedKey = this.trie.matchesName(key, keyStart, keyEnd)
+                || container.key != null && container.key.isTerminal();
+    }
+
+    /**
+     * 引数として渡されたコンテナの中で開始するコンテナの、子のキーを照合するパスの節点を返却します。
+     *
+     * @param parent 親のコンテナ、最上位の場合は {@code null}
+     * @return 子のキーを照合するパスの節点、照合するパスがない場合は {@code null}
+     */
+    private JsonKeyTrie.Node childPath(Container parent) {
+
+        if (parent == null) {
+            return this.trie.getPathRoot();
+        }
+
+        if (!parent.object) {
+            return parent.path;
+        }
+
+        return parent.key == null ? null : parent.key.child(JsonKeyTrie.PATH_SEPARATOR);
+    }
+
+    /**
+     * 現在のトークンから始まるコンテナの終端までを読み飛ばします。
+     */
+    private void skipContainer() {
+
+        int depth = 1;
+
+        while (depth > 0 && this.tokenizer.next()) {
+            final String skipped = this.tokenizer.getToken();
+
+            if (isStart(skipped)) {
+                depth++;
+            } else if (Brace.END.getTag().equals(skipped) || Bracket.END.getTag().equals(skipped)) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * 引数として渡されたトークンが開き括弧であるかを判定します。
+     *
+     * @param token トークン
+     * @return 開き括弧である場合は {@code true}、それ以外は {@code false}
+     */
+    private static boolean isStart(String token) {
+        return Brace.START.getTag().equals(token) || Bracket.START.getTag().equals(token);
+    }
+}
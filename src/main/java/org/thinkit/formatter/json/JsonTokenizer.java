@@ -15,7 +15,7 @@
 package org.thinkit.formatter.json;
 
 import java.util.Locale;
-import java.util.StringTokenizer;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import org.thinkit.api.catalog.BiCatalog;
@@ -30,6 +30,9 @@ import lombok.ToString;
 
 /**
  * JSON文字列のトークン解析を行う処理を定義したクラスです。
+ * <p>
+ * 解析対象の {@link CharSequence} を位置で直接走査するため、 {@link StringBuilder} や {@link java.nio.CharBuffer}
+ * などの呼び出し元の領域に格納されたJSON文字列を {@link String} へコピーせずに解析することができます。
  *
  * @author Kato Shinya
  * @since 1.0.0
@@ -43,6 +46,27 @@ final class JsonTokenizer implements Tokenizable {
      */
     private static final String TOKEN_DELIMITER = "{[]}:,\\\"" + getWhitespaces();
 
+    /**
+     * ASCII文字が区切り文字であるか否か
+     */
+    private static final boolean[] ASCII_DELIMITERS = new boolean[128];
+
+    /**
+     * ASCII文字の区切り文字のトークン
+     */
+    private static final String[] ASCII_DELIMITER_TOKENS = new String[128];
+
+    static {
+        for (int i = 0; i < TOKEN_DELIMITER.length(); i++) {
+            final char delimiter = TOKEN_DELIMITER.charAt(i);
+
+            if (delimiter < ASCII_DELIMITERS.length) {
+                ASCII_DELIMITERS[delimiter] = true;
+                ASCII_DELIMITER_TOKENS[delimiter] = String.valueOf(delimiter);
+            }
+        }
+    }
+
     /**
      * トークン
      */
@@ -62,9 +86,25 @@ final class JsonTokenizer implements Tokenizable {
     private String lastToken;
 
     /**
-     * JSONのトークナイザー
+     * 処理対象のJSON文字列
      */
-    private StringTokenizer jsonTokenizer;
+    private CharSequence json;
+
+    /**
+     * 現在のトークンの開始位置
+     */
+    @Getter
+    private int start;
+
+    /**
+     * 現在の走査位置
+     */
+    private int position;
+
+    /**
+     * 走査の終了位置
+     */
+    private int end;
 
     /**
      * デフォルトコンストラクタ
@@ -84,12 +124,18 @@ final class JsonTokenizer implements Tokenizable {
     /**
      * コンストラクタ
      *
-     * @param json 処理対象のJSON文字列
+     * @param json  処理対象のJSON文字列
+     * @param start 解析の開始位置
+     * @param end   解析の終了位置
      *
      * @exception NullPointerException 引数として {@code null} が渡された場合
      */
-    private JsonTokenizer(@NonNull String json) {
-        this.jsonTokenizer = new StringTokenizer(json, TOKEN_DELIMITER, true);
+    private JsonTokenizer(@NonNull CharSequence json, int start, int end) {
+        Objects.checkFromToIndex(start, end, json.length());
+        this.json = json;
+        this.start = start;
+        this.position = start;
+        this.end = end;
         this.token = "";
         this.lowercaseToken = "";
     }
@@ -102,18 +148,43 @@ final class JsonTokenizer implements Tokenizable {
      *
      * @exception NullPointerException 引数として {@code null} が渡された場合
      */
-    public static Tokenizable of(@NonNull String json) {
-        return new JsonTokenizer(json);
+    public static Tokenizable of(@NonNull CharSequence json) {
+        return new JsonTokenizer(json, 0, json.length());
+    }
+
+    /**
+     * 引数として渡された {@code json} 文字列の指定された範囲に基づいて {@link JsonTokenizer} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param json  処理対象のJSON文字列
+     * @param start 解析の開始位置
+     * @param end   解析の終了位置
+     * @return {@link JsonTokenizer} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException      引数として {@code null} が渡された場合
+     * @exception IndexOutOfBoundsException 範囲が {@code json} の長さを超える場合
+     */
+    public static JsonTokenizer of(@NonNull CharSequence json, int start, int end) {
+        return new JsonTokenizer(json, start, end);
+    }
+
+    /**
+     * 現在のトークンの直後の位置を返却します。
+     *
+     * @return 現在のトークンの直後の位置
+     */
+    public int getEnd() {
+        return this.position;
     }
 
     @Override
     public boolean next() {
 
-        if (!jsonTokenizer.hasMoreTokens()) {
+        if (this.position >= this.end) {
             return false;
         }
 
-        this.token = this.jsonTokenizer.nextToken();
+        this.start = this.position;
+        this.token = this.nextToken();
 
         if (Quotation.DOUBLE_QUOTATION.getTag().equals(this.token)) {
             this.afterDoubleQuotation();
@@ -127,22 +198,151 @@ final class JsonTokenizer implements Tokenizable {
     /**
      * ダブルクォーテーション以降のトークンを参照し文字列を生成します。生成された文字列は変数 {@code token} に格納されるため、
      * {@link #getToken()} メソッドを呼び出すことで取得することができます。
+     * <p>
+     * バックスラッシュの直後のトークンはエスケープされた文字として扱うため、 {@code \"} で文字列が終了することはありません。
      */
     private void afterDoubleQuotation() {
 
-        final StringBuilder sb = new StringBuilder(this.token);
-
-        while (jsonTokenizer.hasMoreTokens()) {
-            final String tokenAfterQuote = jsonTokenizer.nextToken();
-            sb.append(tokenAfterQuote);
+        while (this.position < this.end) {
+            final String tokenAfterQuote = this.nextToken();
 
             this.lowercaseToken = tokenAfterQuote.toLowerCase(Locale.ROOT);
 
-            if (Quotation.DOUBLE_QUOTATION.getTag().equals(tokenAfterQuote) && !"\\".equals(this.lastToken)) {
+            if ("\\".equals(tokenAfterQuote) && this.position < this.end) {
+                this.skipToken();
+            } else if (Quotation.DOUBLE_QUOTATION.getTag().equals(tokenAfterQuote)) {
                 break;
             }
         }
 
-        this.token = sb.toString();
+        this.token = this.json.subSequence(this.start, this.position).toString();
+    }
+
+    /**
+     * 現在の走査位置から次のトークンを読み込み返却します。
+     * <p>
+     * 区切り文字はそれ自体が1つのトークンとなり、それ以外の文字は次の区切り文字の直前までを1つのトークンとします。
+     *
+     * @return 次のトークン
+     */
+    private String nextToken() {
+
+        final int tokenStart = this.position;
+        final char c = this.json.charAt(this.position);
+
+        if (isDelimiter(c)) {
+            this.position++;
+            return c < ASCII_DELIMITER_TOKENS.length ? ASCII_DELIMITER_TOKENS[c] : String.valueOf(c);
+        }
+
+        this.skipToken();
+
+        return this.json.subSequence(tokenStart, this.position).toString();
+    }
+
+    /**
+     * 現在の走査位置から次のトークンを読み飛ばします。
+     */
+    private void skipToken() {
+
+        if (isDelimiter(this.json.charAt(this.position++))) {
+            return;
+        }
+
+        while (this.position < this.end && !isDelimiter(this.json.charAt(this.position))) {
+            this.position++;
+        }
+    }
+
+    /**
+     * JSON文字列のエスケープシーケンスを解除します。
+     *
+     * @param value エスケープされた文字列
+     * @return エスケープを解除した文字列
+     */
+    static String unescape(String value) {
+
+        final StringBuilder unescaped = new StringBuilder(value.length());
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            if (c != '\\' || i + 1 >= value.length()) {
+                unescaped.append(c);
+                continue;
+            }
+
+            final char escaped = value.charAt(++i);
+
+            switch (escaped) {
+                case 'b':
+                    unescaped.append('\b');
+                    break;
+                case 'f':
+                    unescaped.append('\f');
+                    break;
+                case 'n':
+                    unescaped.append('\n');
+                    break;
+                case 'r':
+                    unescaped.append('\r');
+                    break;
+                case 't':
+                    unescaped.append('\t');
+                    break;
+                case 'u':
+                    final int codePoint = parseHex(value, i + 1);
+
+                    if (codePoint < 0) {
+                        unescaped.append(escaped);
+                    } else {
+                        unescaped.append((char) codePoint);
+                        i += 4;
+                    }
+                    break;
+                default:
+                    unescaped.append(escaped);
+            }
+        }
+
+        return unescaped.toString();
+    }
+
+    /**
+     * 指定された位置から始まる4桁の16進数を解析します。
+     *
+     * @param value 解析対象の文字列
+     * @param start 開始位置
+     * @return 解析した値、4桁の16進数ではない場合は {@code -1}
+     */
+    private static int parseHex(String value, int start) {
+
+        if (start + 4 > value.length()) {
+            return -1;
+        }
+
+        int codePoint = 0;
+
+        for (int i = start; i < start + 4; i++) {
+            final int digit = Character.digit(value.charAt(i), 16);
+
+            if (digit < 0) {
+                return -1;
+            }
+
+            codePoint = codePoint << 4 | digit;
+        }
+
+        return codePoint;
+    }
+
+    /**
+     * 引数として渡された文字が区切り文字であるかを判定します。
+     *
+     * @param c 文字
+     * @return 区切り文字である場合は {@code true}、それ以外は {@code false}
+     */
+    private static boolean isDelimiter(char c) {
+        return c < ASCII_DELIMITERS.length ? ASCII_DELIMITERS[c] : TOKEN_DELIMITER.indexOf(c) >= 0;
     }
 }
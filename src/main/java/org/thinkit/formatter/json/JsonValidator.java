@@ -0,0 +1,233 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.thinkit.formatter.json.catalog.Brace;
+import org.thinkit.formatter.json.catalog.Bracket;
+import org.thinkit.formatter.json.catalog.Delimiter;
+import org.thinkit.formatter.json.catalog.Quotation;
+
+import lombok.NonNull;
+
+/**
+ * {@link JsonTokenizer} クラスのトークン列がJSONの文法に従っているかを検証するクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class JsonValidator {
+
+    /**
+     * コロン
+     */
+    private static final String COLON = ":";
+
+    /**
+     * リテラル
+     */
+    private static final Set<String> LITERALS = Set.of("true", "false", "null");
+
+    /**
+     * 数値
+     */
+    private static final Pattern NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+
+    /**
+     * 検証中の状態
+     */
+    private enum State {
+
+        /**
+         * 値を待っている状態
+         */
+        VALUE,
+
+        /**
+         * 値または配列の終了を待っている状態
+         */
+        VALUE_OR_END,
+
+        /**
+         * キーを待っている状態
+         */
+        KEY,
+
+        /**
+         * キーまたはオブジェクトの終了を待っている状態
+         */
+        KEY_OR_END,
+
+        /**
+         * コロンを待っている状態
+         */
+        COLON,
+
+        /**
+         * カンマまたはコンテナの終了を待っている状態
+         */
+        COMMA_OR_END,
+
+        /**
+         * 最上位の値の後で終端を待っている状態
+         */
+        DONE;
+    }
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonValidator() {
+    }
+
+    /**
+     * 引数として渡された {@code json} がJSONの文法に従っているかを判定します。
+     *
+     * @param json 検証対象の文字列
+     * @return JSONの文法に従っている場合は {@code true}、それ以外は {@code false}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static boolean isValid(@NonNull String json) {
+        return findError(json, 0, json.length()) < 0;
+    }
+
+    /**
+     * 引数として渡された {@code json} の指定された範囲がJSONの文法に従っているかを検証し、従っていない場合は文法に反する位置を返却します。
+     * <p>
+     * 文法に反するトークンが見つかった場合はそのトークンの開始位置を返却し、全てのトークンを読み終えても値が完結しない場合は {@code end}
+     * を返却します。
+     *
+     * @param json  検証対象の文字列
+     * @param start 検証の開始位置
+     * @param end   検証の終了位置
+     * @return JSONの文法に従っている場合は {@code -1} 、それ以外は文法に反する位置
+     *
+     * @exception NullPointerException      引数として {@code null} が渡された場合
+     * @exception IndexOutOfBoundsException 範囲が {@code json} の長さを超える場合
+     */
+    static int findError(@NonNull CharSequence json, int start, int end) {
+
+        final JsonTokenizer tokenizer = JsonTokenizer.of(json, start, end);
+        final Deque<String> containers = new ArrayDeque<>();
+        State state = State.VALUE;
+
+        while (tokenizer.next()) {
+            final String token = tokenizer.getToken();
+            final int position = tokenizer.getEnd() - token.length();
+
+            if (tokenizer.isWhitespace(token)) {
+                continue;
+            }
+
+            switch (state) {
+                case VALUE:
+                case VALUE_OR_END:
+                    if (state == State.VALUE_OR_END && Bracket.END.getTag().equals(token)) {
+                        containers.pop();
+                        state = containers.isEmpty() ? State.DONE : State.COMMA_OR_END;
+                    } else if (Brace.START.getTag().equals(token)) {
+                        containers.push(token);
+                        state = State.KEY_OR_END;
+                    } else if (Bracket.START.getTag().equals(token)) {
+                        containers.push(token);
+                        state = State.VALUE_OR_END;
+                    } else if (isScalar(token)) {
+                        state = containers.isEmpty() ? State.DONE : State.COMMA_OR_END;
+                    } else {
+                        return position;
+                    }
+                    break;
+                case KEY:
+                case KEY_OR_END:
+                    if (state == State.KEY_OR_END && Brace.END.getTag().equals(token)) {
+                        containers.pop();
+                        state = containers.isEmpty() ? State.DONE : State.COMMA_OR_END;
+                    } else if (isString(token)) {
+                        state = State.COLON;
+                    } else {
+                        return position;
+                    }
+                    break;
+                case COLON:
+                    if (!COLON.equals(token)) {
+                        return position;
+                    }
+                    state = State.VALUE;
+                    break;
+                case COMMA_OR_END:
+                    if (Delimiter.COMMA.getTag().equals(token)) {
+                        state = Brace.START.getTag().equals(containers.peek()) ? State.KEY : State.VALUE;
+                    } else if (Brace.END.getTag().equals(token) && Brace.START.getTag().equals(containers.peek())
+                            || Bracket.END.getTag().equals(token) && Bracket.START.getTag().equals(containers.peek())) {
+                        containers.pop();
+                        state = containers.isEmpty() ? State.DONE : State.COMMA_OR_END;
+                    } else {
+                        return position;
+                    }
+                    break;
+                default:
+                    return position;
+            }
+        }
+
+        return state == State.DONE ? -1 : end;
+    }
+
+    /**
+     * 引数として渡された {@code token} がスカラー値であるかを判定します。
+     *
+     * @param token トークン
+     * @return スカラー値である場合は {@code true}、それ以外は {@code false}
+     */
+    private static boolean isScalar(String token) {
+        return isString(token) || LITERALS.contains(token) || NUMBER.matcher(token).matches();
+    }
+
+    /**
+     * 引数として渡された {@code token} が終端したJSON文字列であるかを判定します。
+     *
+     * @param token トークン
+     * @return 終端したJSON文字列である場合は {@code true}、それ以外は {@code false}
+     */
+    private static boolean isString(String token) {
+
+        final String quotation = Quotation.DOUBLE_QUOTATION.getTag();
+
+        return token.length() >= 2 && token.startsWith(quotation) && token.endsWith(quotation)
+                && !endsWithEscape(token);
+    }
+
+    /**
+     * 引数として渡された {@code token} の終端のダブルクォーテーションがエスケープされているかを判定します。
+     *
+     * @param token トークン
+     * @return 終端のダブルクォーテーションがエスケープされている場合は {@code true}、それ以外は {@code false}
+     */
+    private static boolean endsWithEscape(String token) {
+
+        int backslashes = 0;
+
+        for (int i = token.length() - 2; i > 0 && token.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+
+        return backslashes % 2 == 1;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json.catalog;
+
+import org.thinkit.api.catalog.Catalog;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 整形デーモンへ要求する操作を管理するカタログです。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+@RequiredArgsConstructor
+public enum DaemonOperation implements Catalog<DaemonOperation> {
+
+    /**
+     * 整形
+     */
+    FORMAT(0),
+
+    /**
+     * 統計情報
+     */
+    STATS(1);
+
+    /**
+     * コード値
+     */
+    @Getter
+    private final int code;
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json.catalog;
+
+import org.thinkit.api.catalog.Catalog;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 整形デーモンの応答状態を管理するカタログです。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+@RequiredArgsConstructor
+public enum DaemonStatus implements Catalog<DaemonStatus> {
+
+    /**
+     * 正常
+     */
+    OK(0),
+
+    /**
+     * 処理能力超過
+     */
+    BUSY(1),
+
+    /**
+     * 異常
+     */
+    ERROR(2);
+
+    /**
+     * コード値
+     */
+    @Getter
+    private final int code;
+}
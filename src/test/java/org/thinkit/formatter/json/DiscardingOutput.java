@@ -0,0 +1,88 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * 書き込まれた内容を破棄する出力先です。整形処理自体のコストを計測する際に、出力先への書き込みのコストを除外するために使用します。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class DiscardingOutput implements Appendable, GatheringByteChannel {
+
+    /**
+     * 唯一のインスタンス
+     */
+    static final DiscardingOutput INSTANCE = new DiscardingOutput();
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private DiscardingOutput() {
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) {
+        return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+        return this;
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources, int offset, int length) {
+
+        long written = 0;
+
+        for (int i = offset; i < offset + length; i++) {
+            written += this.write(sources[i]);
+        }
+
+        return written;
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources) {
+        return this.write(sources, 0, sources.length);
+    }
+
+    @Override
+    public int write(ByteBuffer source) {
+
+        final int remaining = source.remaining();
+        source.position(source.limit());
+
+        return remaining;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+    }
+}
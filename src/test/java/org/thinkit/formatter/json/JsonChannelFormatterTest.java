@@ -0,0 +1,163 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.StringJoiner;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link JsonChannelFormatter} クラスのテストケースを管理するクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+public final class JsonChannelFormatterTest {
+
+    /**
+     * 整形対象のJSON文字列
+     */
+    private static final List<String> DOCUMENTS = List.of(
+            "{\"metadata\":{\"author\":\"Kato Shinya\",\"since\":\"1.0\"},\"nodes\":[{\"id\":0,\"exclude\":false},{\"id\":1,\"values\":[1, 2, [3, {}]]}]}",
+            "{\"text\":\"say \\\"hello, world\\\" {[\",\"path\":\"C:\\\\\",\"escaped\":\"\\\\\\\"}]\",\"n\":1}",
+            "  [ {\"a\" : \"テスト\uD83D\uDE00, \\u0041\"} ,\n\t{\"b\":[ ]} ]  ");
+
+    @Test
+    void testGatheringWrite() throws IOException {
+
+        for (final String json : DOCUMENTS) {
+            final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            final String expected = JsonFormatter.from(2).format(json);
+
+            for (int chunkSize = 1; chunkSize <= bytes.length; chunkSize++) {
+                final RecordingChannel channel = new RecordingChannel();
+                final JsonChannelFormatter formatter = JsonChannelFormatter.of(channel, 2);
+
+                for (int start = 0; start < bytes.length; start += chunkSize) {
+                    formatter.format(ByteBuffer.wrap(bytes, start, Math.min(chunkSize, bytes.length - start)));
+                }
+
+                formatter.finish();
+
+                assertEquals(expected, channel.output.toString(StandardCharsets.UTF_8));
+                assertTrue(channel.gatheringWrites > 0);
+            }
+        }
+    }
+
+    @Test
+    void testWriteToNonGatheringChannel() throws IOException {
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final JsonChannelFormatter formatter = JsonChannelFormatter.of(Channels.newChannel(output), 2);
+
+        formatter.format(ByteBuffer.wrap(DOCUMENTS.get(0).getBytes(StandardCharsets.UTF_8)));
+        formatter.finish();
+
+        assertEquals(JsonFormatter.from(2).format(DOCUMENTS.get(0)), output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testReuseWindowAcrossBatches() throws IOException {
+
+        final StringJoiner json = new StringJoiner(", ", "[", "]");
+
+        for (int i = 0; i < 5000; i++) {
+            json.add("{\"value\" : [" + i + ", {}], \"text\":\"テスト " + i + "\"}");
+        }
+
+        final byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer window = ByteBuffer.allocateDirect(4096);
+        final RecordingChannel channel = new RecordingChannel();
+        final JsonChannelFormatter formatter = JsonChannelFormatter.of(channel, 2);
+
+        for (int start = 0; start < bytes.length; start += window.capacity()) {
+            window.clear();
+            window.put(bytes, start, Math.min(window.capacity(), bytes.length - start));
+            formatter.format(window.flip());
+        }
+
+        formatter.finish();
+
+        assertEquals(JsonFormatter.from(2).format(json.toString()), channel.output.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 書き込まれたバイト列と {@link GatheringByteChannel#write(ByteBuffer[], int, int)} メソッドの呼び出し回数を記録するチャネルです。
+     * 1回の呼び出しでは先頭の2つのバッファまでしか書き込みません。
+     */
+    private static final class RecordingChannel implements GatheringByteChannel {
+
+        /**
+         * 書き込まれたバイト列
+         */
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        /**
+         * 配列を渡された書き込みの回数
+         */
+        private int gatheringWrites;
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) {
+
+            this.gatheringWrites++;
+
+            long written = 0;
+
+            for (int i = offset; i < offset + Math.min(length, 2); i++) {
+                written += this.write(sources[i]);
+            }
+
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources) {
+            return this.write(sources, 0, sources.length);
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+
+            final int remaining = source.remaining();
+
+            while (source.hasRemaining()) {
+                this.output.write(source.get());
+            }
+
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link JsonComparator} クラスのテストケースを管理するクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+public final class JsonComparatorTest {
+
+    /**
+     * 比較元のJSON文字列
+     */
+    private static final String LEFT = "{\"metadata\":{\"author\":\"Kato Shinya\",\"since\":\"1.0\"},\"nodes\":[{\"id\":0,\"tags\":[\"a\",\"b\"]},{\"id\":1}],\"exclude\":false}";
+
+    @Test
+    void testEquivalent() {
+
+        final JsonComparator comparator = JsonComparator.newInstance();
+
+        assertTrue(comparator.isEquivalent(LEFT, JsonFormatter.newInstance().format(LEFT)));
+        assertTrue(comparator.isEquivalent("", " \n"));
+        assertFalse(comparator.isEquivalent(LEFT, LEFT.replace("\"id\":1", "\"id\":2")));
+    }
+
+    @Test
+    void testFindFirstDifference() {
+
+        final String right = JsonFormatter.from(2).format(LEFT.replace("\"id\":1", "\"id\":2"));
+        final JsonDifference difference = JsonComparator.newInstance().findFirstDifference(LEFT, right)
+                .orElseThrow();
+
+        assertEquals("$.nodes[1].id", difference.getPath());
+        assertEquals(LEFT.indexOf("\"id\":1") + 5, difference.getLeftOffset());
+        assertEquals(right.indexOf("\"id\":2") + 5, difference.getRightOffset());
+        assertEquals("1", difference.getLeftValue());
+        assertEquals("2", difference.getRightValue());
+
+        final JsonDifference renamed = JsonComparator.newInstance()
+                .findFirstDifference("{\"a\":1,\"b\":2}", "{\"a\":1,\"c\":2}").orElseThrow();
+
+        assertEquals("$.b", renamed.getPath());
+        assertEquals("\"b\"", renamed.getLeftValue());
+        assertEquals("\"c\"", renamed.getRightValue());
+    }
+
+    @Test
+    void testFindDifferences() {
+
+        final String right = "{\"metadata\":{\"author\":\"Kato\",\"since\":\"1.0\"},\"nodes\":[{\"id\":0,\"tags\":[\"a\",\"b\",\"c\"]},{\"key\":1}],\"exclude\":{\"flag\":true}}";
+        final List<String> differences = JsonComparator.newInstance().findDifferences(LEFT, right).stream()
+                .map(JsonDifference::describe).collect(Collectors.toList());
+
+        assertEquals(List.of("$.metadata.author: \"Kato Shinya\" -> \"Kato\"", "$.nodes[0].tags: ] -> ,\"c\"]",
+                "$.nodes[1].id: \"id\":1 -> \"key\":1", "$.exclude: false -> {\"flag\":true}"), differences);
+    }
+}
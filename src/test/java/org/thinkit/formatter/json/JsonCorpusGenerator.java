@@ -0,0 +1,351 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.io.IOException;
+import java.util.Random;
+
+import lombok.NonNull;
+
+/**
+ * 性能計測用の合成JSONを生成するジェネレータクラスです。
+ * <p>
+ * 生成するJSONはオブジェクトを要素とする配列であり、各要素の深さ、分岐数、文字列長の範囲、非ASCII文字の割合を指定することができます。
+ * 生成結果は {@link Appendable} へ逐次出力されるため、ファイルへ出力する場合は数十GBのコーパスも生成することができます。
+ * 同じ設定と乱数シードを指定した場合は常に同じJSONを生成します。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class JsonCorpusGenerator {
+
+    /**
+     * 非ASCII文字として使用する文字の集合
+     */
+    private static final String UNICODE_CHARACTERS = "あいうえおかきくけこ日本語整形試験αβγδ€";
+
+    /**
+     * ASCII文字として使用する文字の集合
+     */
+    private static final String ASCII_CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+
+    /**
+     * オブジェクトの深さ
+     */
+    private int depth;
+
+    /**
+     * オブジェクトの分岐数
+     */
+    private int fanOut;
+
+    /**
+     * 文字列の最小長
+     */
+    private int minStringLength;
+
+    /**
+     * 文字列の最大長
+     */
+    private int maxStringLength;
+
+    /**
+     * 非ASCII文字の割合
+     */
+    private double unicodeRatio;
+
+    /**
+     * 乱数生成器
+     */
+    private Random random;
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonCorpusGenerator() {
+    }
+
+    /**
+     * {@link JsonCorpusGenerator} クラスのインスタンスを生成する {@link Builder} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @return {@link Builder} クラスの新しいインスタンス
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * {@link JsonCorpusGenerator} クラスのインスタンスを生成する処理を定義したビルダークラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0.3
+     */
+    public static class Builder {
+
+        /**
+         * オブジェクトの深さ
+         */
+        private int depth = 3;
+
+        /**
+         * オブジェクトの分岐数
+         */
+        private int fanOut = 4;
+
+        /**
+         * 文字列の最小長
+         */
+        private int minStringLength = 4;
+
+        /**
+         * 文字列の最大長
+         */
+        private int maxStringLength = 32;
+
+        /**
+         * 非ASCII文字の割合
+         */
+        private double unicodeRatio = 0.0;
+
+        /**
+         * 乱数シード
+         */
+        private long seed = 0L;
+
+        /**
+         * デフォルトコンストラクタ
+         */
+        private Builder() {
+        }
+
+        /**
+         * オブジェクトの深さを設定します。
+         *
+         * @param depth オブジェクトの深さ
+         * @return 自分自身のインスタンス
+         */
+        public Builder withDepth(int depth) {
+            this.depth = depth;
+            return this;
+        }
+
+        /**
+         * オブジェクトの分岐数を設定します。
+         *
+         * @param fanOut オブジェクトの分岐数
+         * @return 自分自身のインスタンス
+         */
+        public Builder withFanOut(int fanOut) {
+            this.fanOut = fanOut;
+            return this;
+        }
+
+        /**
+         * 文字列長の範囲を設定します。
+         *
+         * @param minStringLength 文字列の最小長
+         * @param maxStringLength 文字列の最大長
+         * @return 自分自身のインスタンス
+         */
+        public Builder withStringLength(int minStringLength, int maxStringLength) {
+            this.minStringLength = minStringLength;
+            this.maxStringLength = maxStringLength;
+            return this;
+        }
+
+        /**
+         * 文字列に含める非ASCII文字の割合を設定します。
+         *
+         * @param unicodeRatio 非ASCII文字の割合
+         * @return 自分自身のインスタンス
+         */
+        public Builder withUnicodeRatio(double unicodeRatio) {
+            this.unicodeRatio = unicodeRatio;
+            return this;
+        }
+
+        /**
+         * 乱数シードを設定します。
+         *
+         * @param seed 乱数シード
+         * @return 自分自身のインスタンス
+         */
+        public Builder withSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * 設定された値を基に {@link JsonCorpusGenerator} クラスの新しいインスタンスを生成し返却します。
+         *
+         * @return {@link JsonCorpusGenerator} クラスの新しいインスタンス
+         *
+         * @throws IllegalArgumentException 設定された値が不正な場合
+         */
+        public JsonCorpusGenerator build() {
+
+            if (this.depth < 1 || this.fanOut < 1 || this.minStringLength < 0
+                    || this.maxStringLength < this.minStringLength || this.unicodeRatio < 0.0
+                    || this.unicodeRatio > 1.0) {
+                throw new IllegalArgumentException(String.format(
+                        "Invalid corpus shape: depth=%d, fanOut=%d, stringLength=%d..%d, unicodeRatio=%s", this.depth,
+                        this.fanOut, this.minStringLength, this.maxStringLength, this.unicodeRatio));
+            }
+
+            final JsonCorpusGenerator generator = new JsonCorpusGenerator();
+            generator.depth = this.depth;
+            generator.fanOut = this.fanOut;
+            generator.minStringLength = this.minStringLength;
+            generator.maxStringLength = this.maxStringLength;
+            generator.unicodeRatio = this.unicodeRatio;
+            generator.random = new Random(this.seed);
+
+            return generator;
+        }
+    }
+
+    /**
+     * 指定された文字数に達するまで配列の要素を生成し、1つのJSON文書として {@code output} へ出力します。
+     *
+     * @param output 出力先
+     * @param size   生成するJSON文書のおおよその文字数
+     * @return 出力した文字数
+     *
+     * @throws IOException          出力に失敗した場合
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public long generate(@NonNull Appendable output, long size) throws IOException {
+
+        final StringBuilder element = new StringBuilder();
+        long written = 1;
+
+        output.append('[');
+
+        while (written < size - 1) {
+            element.setLength(0);
+
+            if (written > 1) {
+                element.append(',');
+            }
+
+            this.appendObject(element, 1);
+            output.append(element);
+            written += element.length();
+        }
+
+        output.append(']');
+
+        return written + 1;
+    }
+
+    /**
+     * オブジェクトを生成し追加します。
+     *
+     * @param json  追加先
+     * @param level 現在の深さ
+     */
+    private void appendObject(StringBuilder json, int level) {
+
+        json.append('{');
+
+        for (int i = 0; i < this.fanOut; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+
+            json.append("\"field").append(i).append("\":");
+
+            if (level < this.depth) {
+                if (i % 2 == 0) {
+                    this.appendObject(json, level + 1);
+                } else {
+                    this.appendArray(json, level + 1);
+                }
+            } else {
+                this.appendScalar(json);
+            }
+        }
+
+        json.append('}');
+    }
+
+    /**
+     * 配列を生成し追加します。
+     *
+     * @param json  追加先
+     * @param level 現在の深さ
+     */
+    private void appendArray(StringBuilder json, int level) {
+
+        json.append('[');
+
+        for (int i = 0; i < this.fanOut; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+
+            if (level < this.depth) {
+                this.appendObject(json, level + 1);
+            } else {
+                this.appendScalar(json);
+            }
+        }
+
+        json.append(']');
+    }
+
+    /**
+     * 文字列、数値、真偽値、nullのいずれかを生成し追加します。
+     *
+     * @param json 追加先
+     */
+    private void appendScalar(StringBuilder json) {
+
+        switch (this.random.nextInt(4)) {
+            case 0:
+                json.append(this.random.nextInt(1_000_000));
+                break;
+            case 1:
+                json.append(this.random.nextBoolean());
+                break;
+            case 2:
+                json.append("null");
+                break;
+            default:
+                this.appendString(json);
+        }
+    }
+
+    /**
+     * 文字列を生成し追加します。
+     *
+     * @param json 追加先
+     */
+    private void appendString(StringBuilder json) {
+
+        final int length = this.minStringLength
+                + this.random.nextInt(this.maxStringLength - this.minStringLength + 1);
+
+        json.append('"');
+
+        for (int i = 0; i < length; i++) {
+            final String characters = this.random.nextDouble() < this.unicodeRatio ? UNICODE_CHARACTERS
+                    : ASCII_CHARACTERS;
+            json.append(characters.charAt(this.random.nextInt(characters.length())));
+        }
+
+        json.append('"');
+    }
+}
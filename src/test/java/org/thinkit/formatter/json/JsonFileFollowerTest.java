@@ -0,0 +1,190 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link JsonFileFollower} クラスのテストケースを管理するクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+public final class JsonFileFollowerTest {
+
+    @Test
+    void testPollAppendedRecords(@TempDir Path directory) throws IOException {
+
+        final Path file = directory.resolve("service.ndjson");
+        Files.writeString(file, "{\"skipped\":true}\n{\"partial\":");
+
+        try (JsonFileFollower follower = JsonFileFollower.builder().withPath(file)
+                .withFormatter(JsonFormatter.from(0)).withWindowSize(8).build()) {
+            final StringBuilder output = new StringBuilder();
+
+            assertEquals(0, follower.poll(output));
+
+            append(file, "1}\n{\"a\":1}\r\n\n{\"b\":");
+            assertEquals(1, follower.poll(output));
+            assertEquals("{\n\"a\":1\n}\n", output.toString());
+
+            append(file, "2}\n");
+            assertEquals(1, follower.poll(output));
+            assertEquals("{\n\"a\":1\n}\n{\n\"b\":2\n}\n", output.toString());
+
+            output.setLength(0);
+            Files.writeString(file, "{\"c\":3}\n");
+            assertEquals(1, follower.poll(output));
+            assertEquals("{\n\"c\":3\n}\n", output.toString());
+
+            output.setLength(0);
+            append(file, "{\"d\":4}\n");
+            Files.move(file, directory.resolve("service.ndjson.1"), StandardCopyOption.ATOMIC_MOVE);
+            Files.writeString(file, "{\"e\":5}\n");
+            assertEquals(2, follower.poll(output));
+            assertEquals("{\n\"d\":4\n}\n{\n\"e\":5\n}\n", output.toString());
+        }
+    }
+
+    @Test
+    void testDiscardOversizeRecordsAndEmitRotatedTail(@TempDir Path directory) throws IOException {
+
+        final Path file = directory.resolve("service.ndjson");
+        Files.writeString(file, "");
+
+        try (JsonFileFollower follower = JsonFileFollower.builder().withPath(file)
+                .withFormatter(JsonFormatter.from(0)).withFromEnd(false).withWindowSize(8).withMaxRecordBytes(16)
+                .build()) {
+            final StringBuilder output = new StringBuilder();
+
+            append(file, "{\"big\":\"" + "x".repeat(64) + "\"}\n{\"a\":1}\n");
+            assertEquals(1, follower.poll(output));
+            assertEquals("{\n\"a\":1\n}\n", output.toString());
+
+            output.setLength(0);
+            append(file, "y".repeat(100));
+            assertEquals(0, follower.poll(output));
+            append(file, "\n{\"b\":2}\n");
+            assertEquals(1, follower.poll(output));
+            assertEquals("{\n\"b\":2\n}\n", output.toString());
+
+            output.setLength(0);
+            append(file, "{\"c\":3}");
+            assertEquals(0, follower.poll(output));
+            Files.move(file, directory.resolve("service.ndjson.1"), StandardCopyOption.ATOMIC_MOVE);
+            Files.writeString(file, "{\"d\":4}\n");
+            assertEquals(2, follower.poll(output));
+            assertEquals("{\n\"c\":3\n}\n{\n\"d\":4\n}\n", output.toString());
+        }
+    }
+
+    @Test
+    void testResumeFromCheckpoint(@TempDir Path directory) throws IOException {
+
+        final Path file = directory.resolve("service.ndjson");
+        final Path checkpoint = directory.resolve("service.checkpoint");
+        Files.writeString(file, "{\"a\":1}\n{\"b\":");
+
+        try (JsonFileFollower follower = JsonFileFollower.builder().withPath(file)
+                .withFormatter(JsonFormatter.from(0)).withFromEnd(false).withCheckpoint(checkpoint).build()) {
+            assertEquals(1, follower.poll(new StringBuilder()));
+            follower.saveCheckpoint();
+        }
+
+        append(file, "2}\n{\"c\":3}\n");
+
+        try (JsonFileFollower follower = JsonFileFollower.builder().withPath(file)
+                .withFormatter(JsonFormatter.from(0)).withFromEnd(false).withCheckpoint(checkpoint).build()) {
+            final StringBuilder output = new StringBuilder();
+
+            assertEquals(2, follower.poll(output));
+            assertEquals("{\n\"b\":2\n}\n{\n\"c\":3\n}\n", output.toString());
+        }
+    }
+
+    @Test
+    void testThrottleCheckpoints(@TempDir Path directory) throws Exception {
+
+        final Path file = directory.resolve("service.ndjson");
+        final Path checkpoint = directory.resolve("service.checkpoint");
+        Files.writeString(file, "");
+
+        final StringBuffer output = new StringBuffer();
+        final JsonFileFollower follower = JsonFileFollower.builder().withPath(file)
+                .withFormatter(JsonFormatter.from(0)).withFromEnd(false).withPollInterval(Duration.ofMillis(10))
+                .withCheckpoint(checkpoint).withCheckpointPeriod(Duration.ofHours(1)).build();
+        final Thread thread = new Thread(() -> {
+            try {
+                follower.follow(output);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        thread.start();
+
+        try {
+            waitUntil(() -> Files.exists(checkpoint));
+            append(file, "{\"a\":1}\n{\"b\":2}\n");
+            waitUntil(() -> output.toString().endsWith("\"b\":2\n}\n"));
+
+            assertEquals(0, JsonCheckpoint.read(checkpoint).orElseThrow().getInputOffset());
+        } finally {
+            follower.close();
+            thread.join(10000);
+        }
+
+        assertEquals(Files.size(file), JsonCheckpoint.read(checkpoint).orElseThrow().getInputOffset());
+    }
+
+    /**
+     * 条件を満たすまで待機します。
+     *
+     * @param condition 条件
+     *
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        for (long deadline = System.nanoTime() + 10_000_000_000L; !condition.getAsBoolean();) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * ファイルの末尾へ文字列を追記します。
+     *
+     * @param file    追記先のファイル
+     * @param content 追記する文字列
+     *
+     * @throws IOException 追記に失敗した場合
+     */
+    private static void append(Path file, String content) throws IOException {
+        Files.writeString(file, content, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link JsonFileFormatter} クラスのテストケースを管理するクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+public final class JsonFileFormatterTest {
+
+    /**
+     * 整形対象のJSON文字列
+     */
+    private static final List<String> DOCUMENTS = List.of(
+            "{\"metadata\":{\"author\":\"Kato Shinya\",\"since\":\"1.0\"},\"nodes\":[{\"id\":0,\"exclude\":false},{\"id\":1,\"values\":[1, 2, [3, {}]]}]}",
+            "{\"text\":\"say \\\"hello, world\\\" {[\",\"path\":\"C:\\\\\",\"escaped\":\"\\\\\\\"}]\",\"n\":1}",
+            "  [ {\"a\" : \"テスト\uD83D\uDE00, \\u0041\"} ,\n\t{\"b\":[ ]} ]  ", "");
+
+    @Test
+    void testFormatMatchesFormatter(@TempDir Path directory) throws IOException {
+
+        final Path input = directory.resolve("input.json");
+        final Path output = directory.resolve("output.json");
+
+        for (final String json : DOCUMENTS) {
+            Files.writeString(input, json);
+
+            final JsonFileFormatter formatter = JsonFileFormatter.builder().withInput(input).withOutput(output)
+                    .withIndent(2).withWindowSize(3).build();
+            formatter.format();
+
+            assertEquals(JsonFormatter.from(2).format(json), Files.readString(output));
+            assertFalse(Files.exists(directory.resolve("output.json.checkpoint")));
+        }
+    }
+
+    @Test
+    void testResumeFromCheckpoint(@TempDir Path directory) throws IOException {
+
+        final Path input = directory.resolve("input.json");
+        final Path output = directory.resolve("output.json");
+        final Path checkpoint = directory.resolve("format.checkpoint");
+
+        for (final String json : DOCUMENTS) {
+            Files.writeString(input, json);
+
+            final String expected = JsonFormatter.from(2).format(json);
+            final int size = json.getBytes(StandardCharsets.UTF_8).length;
+
+            for (int limit = 1; limit < size; limit++) {
+                Files.writeString(output, "stale output that is longer than the checkpoint");
+
+                final JsonFileFormatter formatter = JsonFileFormatter.builder().withInput(input).withOutput(output)
+                        .withCheckpoint(checkpoint).withIndent(2).withWindowSize(2).withCheckpointInterval(4)
+                        .build();
+                formatter.format(limit);
+
+                assertTrue(limit < 4 || limit > size - 2 || Files.exists(checkpoint));
+
+                formatter.format();
+
+                assertEquals(expected, Files.readString(output));
+                assertFalse(Files.exists(checkpoint));
+            }
+        }
+    }
+
+    @Test
+    void testRestartFromUnreadableCheckpoint(@TempDir Path directory) throws IOException {
+
+        final Path input = directory.resolve("input.json");
+        final Path output = directory.resolve("output.json");
+        final Path checkpoint = directory.resolve("format.checkpoint");
+        final String json = DOCUMENTS.get(0);
+
+        Files.writeString(input, json);
+
+        final JsonFileFormatter formatter = JsonFileFormatter.builder().withInput(input).withOutput(output)
+                .withCheckpoint(checkpoint).withIndent(2).withWindowSize(2).withCheckpointInterval(4).build();
+        formatter.format(json.length() / 2);
+
+        final byte[] valid = Files.readAllBytes(checkpoint);
+        final byte[] version = valid.clone();
+        version[7]++;
+
+        for (final byte[] bytes : List.of(version, Arrays.copyOf(valid, valid.length - 1), Arrays.copyOf(valid, 6),
+                "not a checkpoint".getBytes(StandardCharsets.UTF_8))) {
+            Files.write(checkpoint, bytes);
+            Files.writeString(output, "stale output");
+
+            formatter.format();
+
+            assertEquals(JsonFormatter.from(2).format(json), Files.readString(output));
+            assertFalse(Files.exists(checkpoint));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * {@link JsonFormatter} クラスの整形処理におけるメモリ割り当て量を検証するテストケースを管理するクラスです。
+ * <p>
+ * 固定のコーパスを整形した際に割り当てられたバイト数をUTF-8でエンコードした入力1バイトあたりに換算し、整形方式ごとに定めた上限を超えた場合は失敗します。
+ * 上限値は現在の実装でコーパス毎に計測した値の最大値に小さな余裕を持たせた値であり、割り当て量を削減した場合は合わせて引き下げてください。
+ * 出力先を持つ整形方式は出力を破棄する出力先へ書き込み、整形処理自体の割り当て量のみを計測します。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+public final class JsonFormatterAllocationTest {
+
+    /**
+     * {@link JsonFormatter#format(String)} メソッドにおける入力1バイトあたりの割り当て上限
+     */
+    private static final double FORMAT_BYTES_PER_INPUT_BYTE = 56.0;
+
+    /**
+     * {@link JsonFormatter#formatToBuffer(String)} メソッドにおける入力1バイトあたりの割り当て上限
+     */
+    private static final double FORMAT_TO_BUFFER_BYTES_PER_INPUT_BYTE = 48.0;
+
+    /**
+     * {@link JsonFormatter#formatTo(CharSequence, Appendable)} メソッドにおける入力1バイトあたりの割り当て上限
+     */
+    private static final double FORMAT_TO_BYTES_PER_INPUT_BYTE = 40.0;
+
+    /**
+     * {@link JsonChannelFormatter#format(ByteBuffer)} メソッドにおける入力1バイトあたりの割り当て上限
+     */
+    private static final double CHANNEL_BYTES_PER_INPUT_BYTE = 1.5;
+
+    /**
+     * {@link JsonFileFormatter#format()} メソッドにおける入力1バイトあたりの割り当て上限
+     */
+    private static final double FILE_BYTES_PER_INPUT_BYTE = 1.5;
+
+    /**
+     * 計測前のウォームアップ回数
+     */
+    private static final int WARMUP_ITERATIONS = 30;
+
+    /**
+     * 計測回数
+     */
+    private static final int MEASUREMENT_ITERATIONS = 10;
+
+    /**
+     * 計測対象のコーパス
+     */
+    private static final List<String> CORPUS = List.of(createRecords(2000), createNested(8, 1000),
+            createStrings(2000));
+
+    @Test
+    void testFormatAllocation() {
+        assertWithinBudget(FORMAT_BYTES_PER_INPUT_BYTE, json -> JsonFormatter.newInstance().format(json));
+    }
+
+    @Test
+    void testFormatToBufferAllocation() {
+        assertWithinBudget(FORMAT_TO_BUFFER_BYTES_PER_INPUT_BYTE,
+                json -> JsonFormatter.newInstance().formatToBuffer(json));
+    }
+
+    @Test
+    void testFormatToAllocation() {
+        assertWithinBudget(FORMAT_TO_BYTES_PER_INPUT_BYTE, Function.identity(), json -> {
+            try {
+                JsonFormatter.newInstance().formatTo(json, DiscardingOutput.INSTANCE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Test
+    void testChannelFormatterAllocation() {
+        assertWithinBudget(CHANNEL_BYTES_PER_INPUT_BYTE,
+                json -> ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)), input -> {
+                    try {
+                        final JsonChannelFormatter formatter = JsonChannelFormatter.of(DiscardingOutput.INSTANCE, -1);
+                        formatter.format(input.clear());
+                        formatter.finish();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Test
+    void testFileFormatterAllocation(@TempDir Path directory) {
+        assertWithinBudget(FILE_BYTES_PER_INPUT_BYTE, json -> {
+            try {
+                final Path input = Files.writeString(Files.createTempFile(directory, "input", ".json"), json);
+                return JsonFileFormatter.builder().withInput(input)
+                        .withOutput(input.resolveSibling(input.getFileName() + ".out")).build();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, formatter -> {
+            try {
+                formatter.format();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * コーパスを整形した際に割り当てられた入力1バイトあたりのバイト数が上限以下であることを検証します。
+     *
+     * @param budget    入力1バイトあたりの割り当て上限
+     * @param formatter 整形処理
+     */
+    private static void assertWithinBudget(double budget, Function<String, ?> formatter) {
+        assertWithinBudget(budget, Function.identity(), formatter::apply);
+    }
+
+    /**
+     * コーパスから準備した入力を整形した際に割り当てられた入力1バイトあたりのバイト数が上限以下であることを検証します。 入力の準備に要した割り当ては計測しません。
+     *
+     * @param <T>       準備した入力の型
+     * @param budget    入力1バイトあたりの割り当て上限
+     * @param prepare   コーパスから入力を準備する処理
+     * @param formatter 整形処理
+     */
+    private static <T> void assertWithinBudget(double budget, Function<String, T> prepare, Consumer<T> formatter) {
+
+        final ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        for (final String json : CORPUS) {
+            final T input = prepare.apply(json);
+            final int inputBytes = json.getBytes(StandardCharsets.UTF_8).length;
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                formatter.accept(input);
+            }
+
+            final long threadId = Thread.currentThread().getId();
+            final long before = threadMXBean.getThreadAllocatedBytes(threadId);
+
+            for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+                formatter.accept(input);
+            }
+
+            final double bytesPerInputByte = (double) (threadMXBean.getThreadAllocatedBytes(threadId) - before)
+                    / ((long) MEASUREMENT_ITERATIONS * inputBytes);
+
+            assertTrue(bytesPerInputByte <= budget, () -> String.format(
+                    "Allocated %.2f bytes per input byte, which exceeds the budget of %.2f.", bytesPerInputByte, budget));
+        }
+    }
+
+    /**
+     * レコードの配列で構成されたJSON文字列を生成し返却します。
+     *
+     * @param count レコード数
+     * @return レコードの配列で構成されたJSON文字列
+     */
+    private static String createRecords(int count) {
+
+        final StringJoiner json = new StringJoiner(",", "[", "]");
+
+        for (int i = 0; i < count; i++) {
+            json.add(String.format(
+                    "{\"id\":%d,\"name\":\"item-%d\",\"tags\":[\"a\",\"b\",\"c\"],\"active\":%b,\"score\":%d.5}", i,
+                    i, i % 2 == 0, i));
+        }
+
+        return json.toString();
+    }
+
+    /**
+     * 深くネストしたオブジェクトの配列で構成されたJSON文字列を生成し返却します。
+     *
+     * @param depth ネストの深さ
+     * @param count 配列の要素数
+     * @return 深くネストしたオブジェクトの配列で構成されたJSON文字列
+     */
+    private static String createNested(int depth, int count) {
+
+        final StringJoiner json = new StringJoiner(",", "[", "]");
+        final String element = "{\"node\":".repeat(depth) + "null" + "}".repeat(depth);
+
+        for (int i = 0; i < count; i++) {
+            json.add(element);
+        }
+
+        return json.toString();
+    }
+
+    /**
+     * 長い文字列値で構成されたJSON文字列を生成し返却します。
+     *
+     * @param count 文字列値の数
+     * @return 長い文字列値で構成されたJSON文字列
+     */
+    private static String createStrings(int count) {
+
+        final StringJoiner json = new StringJoiner(",", "{", "}");
+
+        for (int i = 0; i < count; i++) {
+            json.add(String.format("\"key%d\":\"%s\"", i, "JSON Formatter テスト".repeat(4)));
+        }
+
+        return json.toString();
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import org.junit.jupiter.api.Test;
+import org.thinkit.formatter.json.catalog.DaemonOperation;
+import org.thinkit.formatter.json.catalog.DaemonStatus;
+
+/**
+ * {@link JsonFormatterDaemon} クラスのテストケースを管理するクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+public final class JsonFormatterDaemonTest {
+
+    @Test
+    void testFormatBatch() throws IOException {
+        try (JsonFormatterDaemon daemon = JsonFormatterDaemon.builder().withPort(0).withWorkers(1).build()) {
+            serve(daemon);
+
+            final List<String> documents = List.of("{\"a\":1}", "[true,false]");
+            final Optional<List<byte[]>> formatted = JsonFormatterClient.format(daemon.getPort(), 2,
+                    List.of(documents.get(0).getBytes(StandardCharsets.UTF_8),
+                            documents.get(1).getBytes(StandardCharsets.UTF_8)));
+
+            assertTrue(formatted.isPresent());
+            assertEquals(2, formatted.get().size());
+
+            for (int i = 0; i < documents.size(); i++) {
+                assertEquals(JsonFormatter.from(2).format(documents.get(i)),
+                        new String(formatted.get().get(i), StandardCharsets.UTF_8));
+            }
+
+            final String stats = new String(JsonFormatterClient.stats(daemon.getPort()).orElseThrow(),
+                    StandardCharsets.UTF_8);
+
+            assertTrue(stats.contains("\"documents\":2"));
+        }
+    }
+
+    @Test
+    void testBusyFallsBackToInProcess() throws Exception {
+
+        final String json = "{\"a\":[1,2]}";
+        final List<byte[]> documents = List.of(json.getBytes(StandardCharsets.UTF_8));
+
+        try (JsonFormatterDaemon daemon = JsonFormatterDaemon.builder().withPort(0).withWorkers(1)
+                .withQueueCapacity(1).withMaxDocumentBytes(json.length()).withMaxBufferedBytes(json.length()).build()) {
+            serve(daemon);
+
+            final List<Socket> stalled = new ArrayList<>();
+
+            try {
+                // 文書を送信しない要求で入力バイト数の上限が全て確保されるまで接続を追加する
+                for (long deadline = System.nanoTime() + 5_000_000_000L; JsonFormatterClient
+                        .format(daemon.getPort(), 2, documents).isPresent();) {
+                    assertTrue(System.nanoTime() < deadline);
+                    stalled.add(stall(daemon.getPort(), json.length()));
+                    Thread.sleep(10);
+                }
+
+                final ByteArrayOutputStream output = new ByteArrayOutputStream();
+                JsonFormatterCli.formatDocuments(JsonFormatter.from(2), documents, OptionalInt.of(daemon.getPort()), 2,
+                        output);
+
+                assertEquals(JsonFormatter.from(2).format(json), output.toString(StandardCharsets.UTF_8));
+                assertTrue(new String(JsonFormatterClient.stats(daemon.getPort()).orElseThrow(),
+                        StandardCharsets.UTF_8).matches("(?s).*\"rejected\":[1-9].*"));
+            } finally {
+                for (final Socket socket : stalled) {
+                    socket.close();
+                }
+            }
+
+            for (long deadline = System.nanoTime() + 5_000_000_000L; JsonFormatterClient
+                    .format(daemon.getPort(), 2, documents).isEmpty();) {
+                assertTrue(System.nanoTime() < deadline);
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    void testStalledUploadsDoNotHoldWorkers() throws Exception {
+        try (JsonFormatterDaemon daemon = JsonFormatterDaemon.builder().withPort(0).withWorkers(1)
+                .withQueueCapacity(1).build()) {
+            serve(daemon);
+
+            final List<Socket> stalled = new ArrayList<>();
+
+            try {
+                for (int i = 0; i < 4; i++) {
+                    stalled.add(stall(daemon.getPort(), 1024));
+                }
+
+                Thread.sleep(100);
+
+                assertTrue(JsonFormatterClient
+                        .format(daemon.getPort(), 2, List.of("[1]".getBytes(StandardCharsets.UTF_8))).isPresent());
+            } finally {
+                for (final Socket socket : stalled) {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRequestDeadline() throws Exception {
+        try (JsonFormatterDaemon daemon = JsonFormatterDaemon.builder().withPort(0).withRequestTimeoutMillis(200)
+                .build(); Socket socket = stall(daemon.getPort(), 1024)) {
+            serve(daemon);
+            socket.setSoTimeout(5_000);
+
+            try {
+                // 1回の読み込みのタイムアウトより短い間隔で少しずつ送信を続ける
+                for (int i = 0; i < 10; i++) {
+                    socket.getOutputStream().write(' ');
+                    socket.getOutputStream().flush();
+                    Thread.sleep(50);
+                }
+            } catch (IOException e) {
+                // デーモンが既に接続を閉じている
+            }
+
+            assertClosedByDaemon(socket);
+        }
+    }
+
+    @Test
+    void testRejectInvalidIndent() throws IOException {
+        try (JsonFormatterDaemon daemon = JsonFormatterDaemon.builder().withPort(0).withWorkers(1).build()) {
+            serve(daemon);
+
+            final List<byte[]> documents = List.of("[1]".getBytes(StandardCharsets.UTF_8));
+
+            assertTrue(JsonFormatterClient.format(daemon.getPort(), 1_000_000_000, documents).isEmpty());
+            assertTrue(JsonFormatterClient.format(daemon.getPort(), -2, documents).isEmpty());
+            assertTrue(JsonFormatterClient.format(daemon.getPort(), JsonFormatterDaemon.MAX_INDENT, documents)
+                    .isPresent());
+            assertTrue(new String(JsonFormatterClient.stats(daemon.getPort()).orElseThrow(), StandardCharsets.UTF_8)
+                    .contains("\"failed\":2"));
+        }
+    }
+
+    @Test
+    void testCloseClosesClients() throws IOException {
+
+        final JsonFormatterDaemon daemon = JsonFormatterDaemon.builder().withPort(0).build();
+        serve(daemon);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            socket.setSoTimeout(5_000);
+
+            final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            output.writeInt(DaemonOperation.STATS.getCode());
+            output.writeInt(-1);
+            JsonFormatterDaemon.writeDocuments(output, List.of());
+            output.flush();
+
+            final DataInputStream input = new DataInputStream(socket.getInputStream());
+            assertEquals(DaemonStatus.OK.getCode(), input.readInt());
+            assertEquals(1, JsonFormatterDaemon.readDocuments(input, Integer.MAX_VALUE, Long.MAX_VALUE).size());
+
+            daemon.close();
+
+            assertClosedByDaemon(socket);
+        }
+    }
+
+    @Test
+    void testStalledDaemon() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            assertTrue(JsonFormatterClient.format(server.getLocalPort(), 2, List.of(new byte[0]), 100).isEmpty());
+        }
+    }
+
+    @Test
+    void testRejectOversizeRequest() throws IOException {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        JsonFormatterDaemon.writeDocuments(output, List.of(new byte[16], new byte[16]));
+
+        final byte[] request = bytes.toByteArray();
+
+        assertEquals(2, JsonFormatterDaemon
+                .readDocuments(new DataInputStream(new ByteArrayInputStream(request)), 16, request.length).size());
+        assertThrows(IOException.class, () -> JsonFormatterDaemon
+                .readDocuments(new DataInputStream(new ByteArrayInputStream(request)), 15, request.length));
+        assertThrows(IOException.class, () -> JsonFormatterDaemon
+                .readDocuments(new DataInputStream(new ByteArrayInputStream(request)), 16, request.length - 1));
+        assertThrows(IOException.class, () -> JsonFormatterDaemon.skipDocuments(
+                new DataInputStream(new ByteArrayInputStream(new byte[] { 0x7F, 0, 0, 0 })), 16, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testFormatWithoutDaemon() throws IOException {
+
+        final int port;
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        assertTrue(JsonFormatterClient.format(port, 2, List.of(new byte[0])).isEmpty());
+    }
+
+    /**
+     * 別のスレッドでデーモンの接続の受け付けを開始します。
+     *
+     * @param daemon デーモン
+     */
+    private static void serve(JsonFormatterDaemon daemon) {
+        new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }).start();
+    }
+
+    /**
+     * 文書のバイト数までを送信し、文書の本体を送信しない整形要求の接続を返却します。
+     *
+     * @param port   デーモンのポート番号
+     * @param length 送信する文書のバイト数
+     * @return 接続
+     *
+     * @throws IOException 送信に失敗した場合
+     */
+    private static Socket stall(int port, int length) throws IOException {
+
+        final Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+        output.writeInt(DaemonOperation.FORMAT.getCode());
+        output.writeInt(2);
+        output.writeInt(1);
+        output.writeInt(length);
+        output.flush();
+
+        return socket;
+    }
+
+    /**
+     * デーモンが接続を閉じたことを検査します。
+     *
+     * @param socket 接続
+     */
+    private static void assertClosedByDaemon(Socket socket) {
+        try {
+            assertEquals(-1, socket.getInputStream().read());
+        } catch (SocketTimeoutException e) {
+            throw new AssertionError("The daemon did not close the connection", e);
+        } catch (IOException e) {
+            // 未読の入力を残して閉じられた接続はリセットされる
+        }
+    }
+}
@@ -14,8 +14,36 @@
 
 package org.thinkit.formatter.json;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 
@@ -37,6 +65,335 @@ public final class JsonFormatterTest {
         assertEquals(EXPECTED_FORMATTED_JSON_STRING, formattedJson);
     }
 
+    @Test
+    void testFormatEscapedQuotation() {
+        assertEquals(EXPECTED_ESCAPED_JSON_STRING,
+                JsonFormatter.from(2).format("{\"text\":\"say \\\"hello, world\\\"\",\"path\":\"C:\\\\\",\"n\":1}"));
+    }
+
+    @Test
+    void testFormatCharSequence() throws IOException {
+
+        final String json = "{\"text\":\"say \\\"hello, world\\\"\",\"path\":\"C:\\\\\",\"n\":1}";
+        final JsonFormatter formatter = JsonFormatter.from(2);
+        final char[] buffer = ("[[" + json + "]]").toCharArray();
+        final StringBuilder output = new StringBuilder("> ");
+
+        formatter.formatTo(new StringBuilder(json), output);
+
+        assertEquals(EXPECTED_ESCAPED_JSON_STRING, formatter.format(new StringBuilder(json)));
+        assertEquals(EXPECTED_ESCAPED_JSON_STRING, formatter.format(buffer, 2, json.length()));
+        assertEquals(EXPECTED_ESCAPED_JSON_STRING, formatter.format(CharBuffer.wrap(json)));
+        assertEquals("> " + EXPECTED_ESCAPED_JSON_STRING, output.toString());
+        assertEquals("", formatter.format(new StringBuilder()));
+    }
+
+    @Test
+    void testFormatWithLineWidth() {
+
+        final String json = "{\"nodes\":[{\"id\":0,\"exclude\":false},{\"id\":1,\"values\":[1,2,[3,{}]]}],\"numbers\":[1,2,3,4,5,6,7,8,9,10,11,12,13,14,15]}";
+        final JsonFormatter formatter = JsonFormatter.builder().withIndent(2).withLineWidth(30).build();
+
+        assertEquals("""
+                {
+                  "nodes":[
+                    {"id":0, "exclude":false},
+                    {
+                      "id":1,
+                      "values":[1, 2, [3, {}]]
+                    }
+                  ],
+                  "numbers":[
+                    1, 2, 3, 4, 5, 6, 7, 8, 9,
+                    10, 11, 12, 13, 14, 15
+                  ]
+                }
+                """, formatter.format(json));
+        assertEquals("{\"a\":[1, 2], \"b\":{}}\n", formatter.format("{ \"a\" : [ 1, 2 ], \"b\" : { } }"));
+    }
+
+    @Test
+    void testFormatWithRedactedKeys() {
+
+        final String json = "{\"user\":{\"name\":\"a\",\"password\":\"p{[\\\"\",\"ssn\":[1,{\"x\":2}]},"
+                + "\"users\":[{\"ssn\":\"s\",\"token\":{\"id\":1}}],\"token\":\"t\",\"ssn\":3}";
+        final JsonFormatter formatter = JsonFormatter.builder().withLineWidth(200)
+                .withRedactedKeys(Set.of("password", "user.ssn", "users.token")).build();
+
+        assertEquals("{\"user\":{\"name\":\"a\", \"password\":\"***\", \"ssn\":\"***\"}, "
+                + "\"users\":[{\"ssn\":\"s\", \"token\":\"***\"}], \"token\":\"t\", \"ssn\":3}\n", formatter.format(json));
+        assertEquals(formatter.format(json).lines().collect(Collectors.toList()),
+                formatter.lines(json).collect(Collectors.toList()));
+        assertEquals("{\"password\":\"\\\"x\\\"\"}\n", JsonFormatter.builder().withLineWidth(200)
+                .withRedactedKeys(Set.of("password")).withRedactionPlaceholder("\"x\"").build()
+                .format("{\"password\":null}"));
+        assertEquals(JsonFormatter.newInstance().format(json),
+                JsonFormatter.builder().withRedactedKeys(Set.of("secret", "user.name.first")).build().format(json));
+    }
+
+    @Test
+    void testFormatWithEscapedRedactedKeys() {
+
+        final String json = "{\"pass\\u0077ord\":\"p\",\"user\":{\"s\\u0073n\":1},\"pass\\/word\":\"q\",\"plain\":\"\\u0070\"}";
+        final JsonFormatter formatter = JsonFormatter.builder().withLineWidth(200)
+                .withRedactedKeys(Set.of("password", "user.ssn", "pass/word")).build();
+
+        assertEquals("{\"pass\\u0077ord\":\"***\", \"user\":{\"s\\u0073n\":\"***\"}, \"pass\\/word\":\"***\", "
+                + "\"plain\":\"\\u0070\"}\n", formatter.format(json));
+    }
+
+    @Test
+    void testLines() {
+
+        final StringJoiner json = new StringJoiner(",", "[", "]");
+
+        for (int i = 0; i < 100000; i++) {
+            json.add("{\"value\":" + i + "}");
+        }
+
+        final String text = json.toString();
+        final int[] scanned = new int[1];
+        final CharSequence source = new CharSequence() {
+
+            @Override
+            public int length() {
+                return text.length();
+            }
+
+            @Override
+            public char charAt(int index) {
+                scanned[0] = Math.max(scanned[0], index);
+                return text.charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return text.subSequence(start, end);
+            }
+        };
+
+        final JsonFormatter formatter = JsonFormatter.from(2);
+
+        assertEquals(List.of("[", "  {", "    \"value\":0"),
+                formatter.lines(source).limit(3).collect(Collectors.toList()));
+        assertTrue(scanned[0] < 64);
+        assertEquals(List.of(formatter.format("{\"a\":[1,2]}").split("\n")),
+                formatter.lines("{\"a\":[1,2]}").collect(Collectors.toList()));
+        assertEquals(0, formatter.lines("").count());
+    }
+
+    @Test
+    void testFormatAsync() throws Exception {
+
+        final String json = "{\"text\":\"say \\\"hello, world\\\"\",\"path\":\"C:\\\\\",\"n\":1}";
+        final CompletableFuture<String> formatted = JsonFormatter.from(2).formatAsync(json, Runnable::run);
+
+        assertEquals(EXPECTED_ESCAPED_JSON_STRING, formatted.get());
+    }
+
+    @Test
+    void testFormatAsyncAbort() throws Exception {
+
+        final StringJoiner json = new StringJoiner(",", "[", "]");
+
+        for (int i = 0; i < 5000; i++) {
+            json.add("{\"value\":" + i + "}");
+        }
+
+        final List<Runnable> tasks = new ArrayList<>();
+        final JsonFormatter formatter = JsonFormatter.from(2);
+
+        final CompletableFuture<String> cancelled = formatter.formatAsync(json.toString(), tasks::add);
+        cancelled.cancel(true);
+
+        final CompletableFuture<String> expired = formatter.formatAsync(json.toString(), tasks::add,
+                Duration.ofMillis(1), Long.MAX_VALUE);
+        Thread.sleep(50);
+
+        final CompletableFuture<String> exceeded = formatter.formatAsync(json.toString(), Runnable::run,
+                Duration.ofMinutes(1), 1000);
+
+        tasks.forEach(Runnable::run);
+
+        assertTrue(cancelled.isCancelled());
+        assertEquals(TimeoutException.class,
+                assertThrows(ExecutionException.class, () -> expired.get()).getCause().getClass());
+        assertEquals(IllegalArgumentException.class,
+                assertThrows(ExecutionException.class, () -> exceeded.get()).getCause().getClass());
+    }
+
+    @Test
+    void testFormatAsyncMaxBytes() throws Exception {
+
+        final String json = "{\"value\":\"テスト\uD83D\uDE00\"}";
+        final JsonFormatter formatter = JsonFormatter.from(2);
+        final String expected = formatter.format(json);
+        final int bytes = expected.getBytes(StandardCharsets.UTF_8).length;
+
+        assertEquals(expected, formatter.formatAsync(json, Runnable::run, Duration.ZERO, bytes).get());
+        assertEquals(IllegalArgumentException.class,
+                assertThrows(ExecutionException.class,
+                        () -> formatter.formatAsync(json, Runnable::run, Duration.ZERO, bytes - 1).get()).getCause()
+                        .getClass());
+        assertThrows(IllegalArgumentException.class,
+                () -> formatter.formatAsync(json, Runnable::run, Duration.ofMillis(-1), bytes));
+        assertThrows(IllegalArgumentException.class, () -> formatter.formatAsync(json, Runnable::run, Duration.ZERO, 0));
+    }
+
+    @Test
+    void testFormatAsyncAbortWhileFormatting() throws Exception {
+
+        final JsonFormatter formatter = JsonFormatter.from(2);
+
+        this.abortWhileFormatting((json, executor) -> formatter.formatAsync(json, executor), future -> {
+            future.cancel(true);
+            assertThrows(CancellationException.class, () -> future.get());
+        });
+
+        this.abortWhileFormatting(
+                (json, executor) -> formatter.formatAsync(json, executor, Duration.ofMillis(500), Long.MAX_VALUE),
+                future -> assertEquals(TimeoutException.class,
+                        assertThrows(ExecutionException.class, () -> future.get()).getCause().getClass()));
+    }
+
+    /**
+     * 巨大なJSONの整形を別スレッドで開始し、入力の途中で整形処理を停止させている間に {@code abort} を実行します。
+     * 整形処理を再開した後、整形処理が入力の終端を走査せずに中断したことを検証します。
+     *
+     * @param start 整形処理を開始する関数
+     * @param abort 整形処理を中断し {@link CompletableFuture} の状態を検証する処理
+     */
+    private void abortWhileFormatting(BiFunction<CharSequence, Executor, CompletableFuture<String>> start,
+            Consumer<CompletableFuture<String>> abort) throws InterruptedException {
+
+        final StringJoiner json = new StringJoiner(",", "[", "]");
+
+        for (int i = 0; i < 100000; i++) {
+            json.add("{\"value\":" + i + "}");
+        }
+
+        final String text = json.toString();
+        final CountDownLatch reached = new CountDownLatch(1);
+        final CountDownLatch resumed = new CountDownLatch(1);
+        final AtomicInteger scanned = new AtomicInteger();
+        final CharSequence source = new CharSequence() {
+
+            @Override
+            public int length() {
+                return text.length();
+            }
+
+            @Override
+            public char charAt(int index) {
+
+                scanned.accumulateAndGet(index, Math::max);
+
+                if (index >= text.length() / 100 && reached.getCount() > 0) {
+                    reached.countDown();
+
+                    try {
+                        resumed.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+
+                return text.charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int begin, int end) {
+                return text.subSequence(begin, end);
+            }
+        };
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            final CompletableFuture<String> future = start.apply(source, executor);
+
+            assertTrue(reached.await(10, TimeUnit.SECONDS));
+            abort.accept(future);
+            assertTrue(future.isCompletedExceptionally());
+        } finally {
+            resumed.countDown();
+            executor.shutdown();
+        }
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(scanned.get() < text.length() - 1);
+    }
+
+    @Test
+    void testFormatToBuffer() throws IOException {
+
+        final StringJoiner json = new StringJoiner(",", "[", "]");
+
+        for (int i = 0; i < 5000; i++) {
+            json.add("{\"value\":\"テスト\uD83D\uDE00" + i + "\"}");
+        }
+
+        final JsonFormatter formatter = JsonFormatter.newInstance();
+        final String expected = formatter.format(json.toString());
+        final JsonOutputBuffer buffer = formatter.formatToBuffer(json.toString());
+
+        assertEquals(expected.length(), buffer.size());
+        assertEquals(expected, buffer.toString());
+        assertEquals(buffer.subSequence(0, buffer.length()), buffer.toString());
+        assertEquals("[\n\n", JsonFormatter.from(0).formatToBuffer("[").toString());
+        assertEquals(expected.substring(8000, 9000), buffer.subSequence(8000, 9000));
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final long written = buffer.transferTo(Channels.newChannel(output));
+
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), output.toByteArray());
+        assertEquals(output.size(), written);
+
+        try (InputStream input = buffer.newInputStream()) {
+            assertArrayEquals(output.toByteArray(), input.readAllBytes());
+        }
+
+        final String straddling = "a".repeat(8191) + "\uD83D\uDE00";
+
+        try (InputStream input = JsonOutputBuffer.newInstance().append(straddling).newInputStream()) {
+            assertArrayEquals(straddling.getBytes(StandardCharsets.UTF_8), input.readAllBytes());
+        }
+    }
+
+    @Test
+    void testFormatToBufferWithHeapLimit() throws IOException {
+
+        final StringJoiner json = new StringJoiner(",", "[", "]");
+
+        for (int i = 0; i < 5000; i++) {
+            json.add("{\"value\":\"テスト\uD83D\uDE00" + i + "\"}");
+        }
+
+        final String expected = JsonFormatter.from(2).format(json.toString());
+        final byte[] bytes = expected.getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class, () -> JsonFormatter.builder().withHeapLimit(0).build());
+
+        for (final long heapLimit : new long[] { 1, 1 << 16 }) {
+            final JsonOutputBuffer buffer = JsonFormatter.builder().withIndent(2).withHeapLimit(heapLimit).build()
+                    .formatToBuffer(json.toString());
+
+            assertEquals(expected, buffer.toString());
+            assertEquals(expected.substring(8000, 30000), buffer.subSequence(8000, 30000));
+            assertEquals(expected.charAt(100), buffer.charAt(100));
+            assertEquals(bytes.length, buffer.utf8Size());
+
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            buffer.transferTo(Channels.newChannel(output));
+
+            assertArrayEquals(bytes, output.toByteArray());
+
+            try (InputStream input = buffer.newInputStream()) {
+                assertArrayEquals(bytes, input.readAllBytes());
+            }
+        }
+    }
+
     /**
      * 整形されたJSONの期待値
      */
@@ -116,4 +473,15 @@ public final class JsonFormatterTest {
               ]
             }
             """;
+
+    /**
+     * エスケープされたダブルクォーテーションを含むJSONの整形結果の期待値
+     */
+    private final String EXPECTED_ESCAPED_JSON_STRING = """
+            {
+              "text":"say \\"hello, world\\"",
+              "path":"C:\\\\",
+              "n":1
+            }
+            """;
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link JsonLogFormatter} クラスのテストケースを管理するクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+public final class JsonLogFormatterTest {
+
+    @Test
+    void testFormatPlainText() {
+
+        final String log = "2021-01-01 12:00:00 INFO {user} logged in with [id] 42";
+
+        assertSame(log, JsonLogFormatter.newInstance().format(log));
+    }
+
+    @Test
+    void testFormatEmbeddedJson() {
+
+        final String formatted = JsonLogFormatter.builder().withIndent(2).build()
+                .format("INFO request={\"id\":1,\"tags\":[\"a\",\"b\"]} took {3ms} {\"broken\":}");
+
+        assertEquals("""
+                INFO request={
+                  "id":1,
+                  "tags":[
+                    "a",
+                    "b"
+                  ]
+                } took {3ms} {"broken":}""", formatted);
+    }
+
+    @Test
+    void testFormatNestedJson() {
+
+        final String log = "WARN {\"payload\":\"{\\\"user\\\":\\\"kato\\\",\\\"roles\\\":[\\\"admin\\\"]}\",\"text\":\"{not json}\"}";
+
+        assertEquals("""
+                WARN {
+                  "payload":{
+                    "user":"kato",
+                    "roles":[
+                      "admin"
+                    ]
+                  },
+                  "text":"{not json}"
+                }""", JsonLogFormatter.builder().withIndent(2).withNestedJson(true).build().format(log));
+    }
+
+    @Test
+    void testFormatWithRedactedKeys() {
+
+        final String log = "WARN {\"user\":\"kato\",\"password\":\"secret\",\"payload\":\"{\\\"token\\\":\\\"t\\\"}\"} done";
+
+        assertEquals("""
+                WARN {
+                  "user":"kato",
+                  "password":"-",
+                  "payload":{
+                    "token":"-"
+                  }
+                } done""", JsonLogFormatter.builder().withIndent(2).withNestedJson(true)
+                .withRedactedKeys(Set.of("password", "payload.token")).withRedactionPlaceholder("-").build()
+                .format(log));
+    }
+
+    @Test
+    void testFormatWithLineWidth() {
+
+        final String log = "INFO {\"user\":{\"name\":\"kato\",\"roles\":[1,2]},\"text\":\"abcdefghijklmnopqrstuvwxyz\"} done";
+
+        assertEquals("""
+                INFO {
+                  "user":{"name":"kato", "roles":[1, 2]},
+                  "text":"abcdefghijklmnopqrstuvwxyz"
+                } done""", JsonLogFormatter.builder().withIndent(2).withLineWidth(60).build().format(log));
+    }
+
+    @Test
+    void testFormatAfterInvalidCandidates() {
+
+        final JsonLogFormatter formatter = JsonLogFormatter.builder().withIndent(2).build();
+
+        assertEquals("""
+                ERROR {"msg":"cut {
+                  "ok":1
+                }""", formatter.format("ERROR {\"msg\":\"cut {\"ok\":1}"));
+        assertEquals("""
+                {"a" {
+                  "b":1
+                }}""", formatter.format("{\"a\" {\"b\":1}}"));
+
+        final String invalid = "{\"a\":{\"b\":{\"c\":x}}}";
+
+        assertSame(invalid, formatter.format(invalid));
+    }
+
+    @Test
+    void testFormatPathologicalLine() {
+
+        final String unterminated = "{\"a ".repeat(200_000);
+        final String nested = "{\"a\":".repeat(100_000) + "x" + "}".repeat(100_000);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertSame(unterminated, JsonLogFormatter.newInstance().format(unterminated));
+            assertSame(nested, JsonLogFormatter.newInstance().format(nested));
+        });
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link JsonParallelFormatter} クラスのテストケースを管理するクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+public final class JsonParallelFormatterTest {
+
+    /**
+     * 整形対象のJSON文字列
+     */
+    private static final List<String> DOCUMENTS = List.of(
+            "{\"metadata\":{\"author\":\"Kato Shinya\",\"since\":\"1.0\"},\"nodes\":[{\"id\":0,\"exclude\":false},{\"id\":1,\"values\":[1, 2, [3, {}]]}]}",
+            "{\"text\":\"say \\\"hello, world\\\" {[\",\"path\":\"C:\\\\\",\"escaped\":\"\\\\\\\"}]\",\"n\":1}",
+            "  [ {\"a\" : \"テスト\uD83D\uDE00, \\u0041\"} ,\n\t{\"b\":[ ]} ]  ",
+            "{\"unterminated\":\"{[,", "{\"a\":1}]}, {\"b\":2}");
+
+    @Test
+    void testFormatMatchesSequentialFormatter() {
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            for (final String json : DOCUMENTS) {
+                final String expected = JsonFormatter.from(2).format(json);
+
+                for (int chunkSize = 1; chunkSize <= json.length(); chunkSize++) {
+                    final JsonParallelFormatter formatter = JsonParallelFormatter.builder().withIndent(2)
+                            .withChunkSize(chunkSize).withExecutor(executor).build();
+
+                    assertEquals(expected, formatter.format(json));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testFormatLargeDocument() throws IOException {
+
+        final StringBuilder json = new StringBuilder();
+        JsonCorpusGenerator.builder().build().generate(json, 1 << 20);
+
+        assertEquals(JsonFormatter.newInstance().format(json.toString()),
+                JsonParallelFormatter.builder().withChunkSize(4096).build().format(json.toString()));
+        assertEquals(JsonFormatter.newInstance().format(json.toString()),
+                JsonParallelFormatter.builder().withChunkSize(4096).withHeapLimit(1 << 16).build()
+                        .format(json.toString()));
+    }
+}
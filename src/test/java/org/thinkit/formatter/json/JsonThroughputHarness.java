@@ -0,0 +1,560 @@
+/*
+ * Copyright 2021 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.formatter.json;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 全ての整形処理の入口に対してコーパスを整形し、スループットを計測するハーネスです。
+ * <p>
+ * {@link JsonCorpusGenerator} クラスで生成した合成コーパス、または記録済みのJSONファイルを対象として、
+ * 整形処理の入口ごとに以下の値をCSVまたはJSON形式で出力します。
+ *
+ * <ul>
+ * <li>スループット（MB/s）</li>
+ * <li>文書あたりのレイテンシ（p50、p99）</li>
+ * <li>計測中のプロセスの最大RSSと、計測後のGCで回収されずに残ったヒープ使用量</li>
+ * <li>GC回数とGC時間</li>
+ * </ul>
+ *
+ * 整形処理の入口ごとにコーパス全体を入力として読み込み、ウォームアップを済ませてからGCを実行し、その後に計測を開始するため、
+ * 入力の読み込みとデコード、ウォームアップ、先に計測した入口のGCと割り当ては計測結果に含まれません。 読み込んだ入力は計測の基準値に含まれるため、
+ * コーパス全体がヒープに収まる必要があります。 最大RSSは {@code /proc/self/clear_refs} でリセットした後の
+ * {@code /proc/self/status} の {@code VmHWM} であり、ダイレクトバッファやファイルのマッピングも含みます。 {@code /proc}
+ * を参照できない環境ではヒープのメモリプールごとの最大値の合計で代用し、 {@code peakMemorySource} 列に {@code heap} を出力します。
+ * この値は各プールが最大となった時点が異なるため実際の最大値以上の値となります。
+ * <p>
+ * 計測対象の入口は {@link JsonFormatter} クラスの各メソッド、行幅を指定した整形、キーの置換を指定した整形、 {@link JsonChannelFormatter} クラス、
+ * {@link JsonFileFormatter} クラス、 {@link JsonParallelFormatter} クラス、および {@link JsonLogFormatter} クラスです。
+ * <p>
+ * Gradleから実行する場合は {@code ./gradlew benchmark -PbenchmarkArgs="--generate build/corpus"} のように引数を指定してください。
+ *
+ * @author Kato Shinya
+ * @since 1.0.3
+ */
+final class JsonThroughputHarness {
+
+    /**
+     * 1MBのバイト数
+     */
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+
+    /**
+     * プロセスの状態を保持するファイル
+     */
+    private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+
+    /**
+     * プロセスの最大RSSをリセットするファイル
+     */
+    private static final Path PROC_CLEAR_REFS = Paths.get("/proc/self/clear_refs");
+
+    /**
+     * JSON形式で文字列として出力する列
+     */
+    private static final Set<String> TEXT_COLUMNS = Set.of("entryPoint", "peakMemorySource");
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private JsonThroughputHarness() {
+    }
+
+    /**
+     * 与えられたコマンドライン引数からハーネスを実行します。コマンドライン引数には以下の値を指定できます。
+     *
+     * <ul>
+     * <li>{@code --corpus <path>} 記録済みのJSONファイル、またはJSONファイルを格納したディレクトリ</li>
+     * <li>{@code --generate <dir>} 合成コーパスの出力先ディレクトリ</li>
+     * <li>{@code --documents <n>} 生成する文書数（既定値: 16）</li>
+     * <li>{@code --document-size <chars>} 生成する文書の文字数（既定値: 1048576）</li>
+     * <li>{@code --depth <n>}、{@code --fan-out <n>} 生成するオブジェクトの深さと分岐数</li>
+     * <li>{@code --min-string <n>}、{@code --max-string <n>} 生成する文字列長の範囲</li>
+     * <li>{@code --unicode-ratio <ratio>} 生成する文字列に含める非ASCII文字の割合</li>
+     * <li>{@code --seed <n>} 乱数シード</li>
+     * <li>{@code --warmup <n>}、{@code --iterations <n>} ウォームアップ回数と計測回数</li>
+     * <li>{@code --report csv|json} 出力形式（既定値: csv）</li>
+     * <li>{@code --output <file>} 出力先のファイル（既定値: 標準出力）</li>
+     * </ul>
+     *
+     * @param args コマンドライン引数
+     *
+     * @throws IOException              コーパスの入出力に失敗した場合
+     * @throws IllegalArgumentException コマンドライン引数が不正な場合
+     */
+    public static void main(String[] args) throws IOException {
+
+        final Map<String, String> options = parseOptions(args);
+        final List<Path> corpus = new ArrayList<>();
+
+        if (options.containsKey("generate")) {
+            corpus.addAll(generate(Paths.get(options.get("generate")), options));
+        }
+
+        if (options.containsKey("corpus")) {
+            corpus.addAll(listCorpus(Paths.get(options.get("corpus"))));
+        }
+
+        if (corpus.isEmpty()) {
+            throw new IllegalArgumentException("No corpus was specified. Use --generate <dir> or --corpus <path>.");
+        }
+
+        final int warmup = Integer.parseInt(options.getOrDefault("warmup", "2"));
+        final int iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+        final List<Map<String, Object>> results = new ArrayList<>();
+
+        final Path formatted = Files.createTempFile("json-throughput", ".json");
+
+        try {
+            for (final Map.Entry<String, EntryPoint> entryPoint : entryPoints(formatted).entrySet()) {
+                results.add(run(entryPoint.getKey(), entryPoint.getValue(), corpus, warmup, iterations));
+            }
+        } finally {
+            Files.deleteIfExists(formatted);
+        }
+
+        if (options.containsKey("output")) {
+            try (PrintStream output = new PrintStream(Files.newOutputStream(Paths.get(options.get("output"))), true,
+                    StandardCharsets.UTF_8)) {
+                report(output, options.getOrDefault("report", "csv"), results);
+            }
+        } else {
+            report(System.out, options.getOrDefault("report", "csv"), results);
+        }
+    }
+
+    /**
+     * 計測対象の整形処理の入口を返却します。 出力先を持つ入口は出力を破棄する出力先へ書き込み、ファイルを整形する入口は指定された出力ファイルへ書き込みます。
+     *
+     * @param output ファイルを整形する入口の出力ファイル
+     * @return 名前をキーとした整形処理の入口
+     */
+    private static Map<String, EntryPoint> entryPoints(Path output) {
+
+        final JsonFormatter formatter = JsonFormatter.newInstance();
+        final JsonFormatter widthFormatter = JsonFormatter.builder().withLineWidth(80).build();
+        final JsonFormatter redactingFormatter = JsonFormatter.builder().withRedactedKeys(Set.of("field1")).build();
+        final JsonParallelFormatter parallelFormatter = JsonParallelFormatter.newInstance();
+        final JsonLogFormatter logFormatter = JsonLogFormatter.newInstance();
+        final Map<String, EntryPoint> entryPoints = new LinkedHashMap<>();
+
+        entryPoints.put("format", document -> {
+            final String json = readString(document);
+            return () -> formatter.format(json);
+        });
+        entryPoints.put("formatToBuffer", document -> {
+            final String json = readString(document);
+            return () -> formatter.formatToBuffer(json);
+        });
+        entryPoints.put("formatTo", document -> {
+            final String json = readString(document);
+            return () -> formatter.formatTo(json, DiscardingOutput.INSTANCE);
+        });
+        entryPoints.put("lines", document -> {
+            final String json = readString(document);
+            return () -> formatter.lines(json).forEach(line -> {
+            });
+        });
+        entryPoints.put("formatAsync", document -> {
+            final String json = readString(document);
+            return () -> formatter.formatAsync(json, ForkJoinPool.commonPool()).join();
+        });
+        entryPoints.put("lineWidth", document -> {
+            final String json = readString(document);
+            return () -> widthFormatter.formatTo(json, DiscardingOutput.INSTANCE);
+        });
+        entryPoints.put("redaction", document -> {
+            final String json = readString(document);
+            return () -> redactingFormatter.formatTo(json, DiscardingOutput.INSTANCE);
+        });
+        entryPoints.put("parallel", document -> {
+            final String json = readString(document);
+            return () -> parallelFormatter.formatToBuffer(json);
+        });
+        entryPoints.put("log", document -> {
+            final String line = "INFO request=" + readString(document) + " done";
+            return () -> logFormatter.format(line);
+        });
+        entryPoints.put("channel", document -> {
+            final ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(requireStringSize(document)));
+            return () -> {
+                final JsonChannelFormatter channelFormatter = JsonChannelFormatter.of(DiscardingOutput.INSTANCE, -1);
+                channelFormatter.format(bytes.clear());
+                channelFormatter.finish();
+            };
+        });
+        entryPoints.put("file", document -> JsonFileFormatter.builder().withInput(document).withOutput(output)
+                .build()::format);
+
+        return entryPoints;
+    }
+
+    /**
+     * 1つの整形処理の入口に対してコーパス全体を整形し、計測結果を返却します。
+     *
+     * @param name       整形処理の入口の名前
+     * @param entryPoint 整形処理の入口
+     * @param corpus     コーパス
+     * @param warmup     ウォームアップ回数
+     * @param iterations 計測回数
+     * @return 計測結果
+     *
+     * @throws IOException コーパスの読み込みまたは整形結果の書き込みに失敗した場合
+     */
+    private static Map<String, Object> run(String name, EntryPoint entryPoint, List<Path> corpus, int warmup,
+            int iterations) throws IOException {
+
+        final List<Task> tasks = new ArrayList<>(corpus.size());
+        final long[] sizes = new long[corpus.size()];
+
+        for (int i = 0; i < corpus.size(); i++) {
+            tasks.add(entryPoint.load(corpus.get(i)));
+            sizes[i] = Files.size(corpus.get(i));
+        }
+
+        for (final Task task : tasks) {
+            for (int i = 0; i < warmup; i++) {
+                task.run();
+            }
+        }
+
+        final long[] latencies = new long[corpus.size() * iterations];
+        final long heapBefore = heapAfterGc();
+        final boolean rss = resetPeakRss();
+
+        resetPeakHeap();
+
+        final long gcCountBefore = gcCount();
+        final long gcTimeBefore = gcTime();
+
+        long bytes = 0;
+        long elapsed = 0;
+        int index = 0;
+
+        for (int document = 0; document < tasks.size(); document++) {
+            final Task task = tasks.get(document);
+
+            for (int i = 0; i < iterations; i++) {
+                final long start = System.nanoTime();
+                task.run();
+                latencies[index++] = System.nanoTime() - start;
+
+                elapsed += latencies[index - 1];
+                bytes += sizes[document];
+            }
+        }
+
+        final OptionalLong peakRss = rss ? peakRss() : OptionalLong.empty();
+        final long peakMemory = peakRss.isPresent() ? peakRss.getAsLong() : peakHeap();
+        final long gcCountAfter = gcCount();
+        final long gcTimeAfter = gcTime();
+
+        Arrays.sort(latencies);
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entryPoint", name);
+        result.put("documents", corpus.size());
+        result.put("bytes", bytes);
+        result.put("mbPerSecond", String.format(Locale.ROOT, "%.2f", bytes / MEGABYTE / (elapsed / 1e9)));
+        result.put("p50Millis", String.format(Locale.ROOT, "%.3f", percentile(latencies, 0.50) / 1e6));
+        result.put("p99Millis", String.format(Locale.ROOT, "%.3f", percentile(latencies, 0.99) / 1e6));
+        result.put("peakMemoryBytes", peakMemory);
+        result.put("peakMemorySource", peakRss.isPresent() ? "rss" : "heap");
+        result.put("retainedHeapBytes", heapAfterGc() - heapBefore);
+        result.put("gcCount", gcCountAfter - gcCountBefore);
+        result.put("gcMillis", gcTimeAfter - gcTimeBefore);
+
+        return result;
+    }
+
+    /**
+     * 合成コーパスを生成し、生成したファイルのパスを返却します。
+     *
+     * @param directory 出力先のディレクトリ
+     * @param options   コマンドライン引数
+     * @return 生成したファイルのパス
+     *
+     * @throws IOException ファイルの出力に失敗した場合
+     */
+    private static List<Path> generate(Path directory, Map<String, String> options) throws IOException {
+
+        final JsonCorpusGenerator generator = JsonCorpusGenerator.builder()
+                .withDepth(Integer.parseInt(options.getOrDefault("depth", "3")))
+                .withFanOut(Integer.parseInt(options.getOrDefault("fan-out", "4")))
+                .withStringLength(Integer.parseInt(options.getOrDefault("min-string", "4")),
+                        Integer.parseInt(options.getOrDefault("max-string", "32")))
+                .withUnicodeRatio(Double.parseDouble(options.getOrDefault("unicode-ratio", "0.0")))
+                .withSeed(Long.parseLong(options.getOrDefault("seed", "0"))).build();
+
+        final int documents = Integer.parseInt(options.getOrDefault("documents", "16"));
+        final long documentSize = Long.parseLong(options.getOrDefault("document-size", "1048576"));
+        final List<Path> corpus = new ArrayList<>(documents);
+
+        Files.createDirectories(directory);
+
+        for (int i = 0; i < documents; i++) {
+            final Path document = directory.resolve(String.format("corpus-%05d.json", i));
+
+            try (Writer writer = Files.newBufferedWriter(document, StandardCharsets.UTF_8)) {
+                generator.generate(writer, documentSize);
+            }
+
+            corpus.add(document);
+        }
+
+        return corpus;
+    }
+
+    /**
+     * 記録済みのJSONファイルを列挙します。ディレクトリが指定された場合は拡張子が {@code .json} のファイルを名前順に返却します。
+     *
+     * @param path JSONファイル、またはJSONファイルを格納したディレクトリ
+     * @return JSONファイルのパス
+     *
+     * @throws IOException ディレクトリの走査に失敗した場合
+     */
+    private static List<Path> listCorpus(Path path) throws IOException {
+
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+
+        try (Stream<Path> files = Files.list(path)) {
+            return files.filter(file -> file.toString().endsWith(".json")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 計測結果を指定された形式で出力します。
+     *
+     * @param output  出力先
+     * @param format  出力形式
+     * @param results 計測結果
+     */
+    private static void report(PrintStream output, String format, List<Map<String, Object>> results) {
+
+        if ("json".equals(format)) {
+            output.println(results.stream()
+                    .map(result -> result.entrySet().stream()
+                            .map(e -> String.format("\"%s\":%s", e.getKey(),
+                                    TEXT_COLUMNS.contains(e.getKey()) ? "\"" + e.getValue() + "\"" : e.getValue()))
+                            .collect(Collectors.joining(",", "{", "}")))
+                    .collect(Collectors.joining(",", "[", "]")));
+            return;
+        }
+
+        output.println(String.join(",", results.get(0).keySet()));
+        results.forEach(result -> output.println(
+                result.values().stream().map(String::valueOf).collect(Collectors.joining(","))));
+    }
+
+    /**
+     * コマンドライン引数を解析します。
+     *
+     * @param args コマンドライン引数
+     * @return オプション名をキーとしたオプション値
+     *
+     * @throws IllegalArgumentException コマンドライン引数が不正な場合
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+
+        final Map<String, String> options = new HashMap<>();
+
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException(String.format("Invalid option: %s", args[i]));
+            }
+
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        return options;
+    }
+
+    /**
+     * ソート済みのレイテンシから指定された百分位の値を返却します。
+     *
+     * @param sorted     ソート済みのレイテンシ
+     * @param percentile 百分位
+     * @return 指定された百分位の値
+     */
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    /**
+     * 累計のGC回数を返却します。
+     *
+     * @return 累計のGC回数
+     */
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).filter(count -> count > 0).sum();
+    }
+
+    /**
+     * 累計のGC時間をミリ秒で返却します。
+     *
+     * @return 累計のGC時間
+     */
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(time -> time > 0).sum();
+    }
+
+    /**
+     * GCを実行した後のヒープ使用量をバイト数で返却します。
+     *
+     * @return GCを実行した後のヒープ使用量
+     */
+    private static long heapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * プロセスの最大RSSを現在のRSSにリセットします。
+     *
+     * @return リセットできた場合は {@code true} 、 {@code /proc/self/clear_refs} を参照できない場合は {@code false}
+     */
+    private static boolean resetPeakRss() {
+        try {
+            Files.writeString(PROC_CLEAR_REFS, "5", StandardOpenOption.WRITE);
+            return true;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 最後にリセットしてからのプロセスの最大RSSをバイト数で返却します。
+     *
+     * @return プロセスの最大RSS、 {@code /proc/self/status} を参照できない場合は {@link OptionalLong#empty()}
+     */
+    private static OptionalLong peakRss() {
+        try (Stream<String> lines = Files.lines(PROC_STATUS)) {
+            return lines.filter(line -> line.startsWith("VmHWM:"))
+                    .mapToLong(line -> Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024).findFirst();
+        } catch (IOException | UncheckedIOException | NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * ヒープのメモリプールごとの使用量の最大値を現在の使用量にリセットします。
+     */
+    private static void resetPeakHeap() {
+        ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP)
+                .forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    /**
+     * 最後にリセットしてからのヒープのメモリプールごとの使用量の最大値の合計をバイト数で返却します。
+     *
+     * @return ヒープのメモリプールごとの使用量の最大値の合計
+     */
+    private static long peakHeap() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    }
+
+    /**
+     * JSONファイルを {@link String} として読み込みます。
+     *
+     * @param document JSONファイル
+     * @return JSONファイルの内容
+     *
+     * @throws IOException              ファイルの読み込みに失敗した場合
+     * @throws IllegalArgumentException ファイルが {@link String} として扱えない大きさの場合
+     */
+    private static String readString(Path document) throws IOException {
+        return Files.readString(requireStringSize(document), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * JSONファイルが {@link String} またはバイト配列として扱える大きさであることを検証します。
+     *
+     * @param document JSONファイル
+     * @return 引数として渡されたJSONファイル
+     *
+     * @throws IOException              ファイルの大きさの取得に失敗した場合
+     * @throws IllegalArgumentException ファイルが {@link String} またはバイト配列として扱えない大きさの場合
+     */
+    private static Path requireStringSize(Path document) throws IOException {
+
+        if (Files.size(document) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    String.format("The document %s is too large to be formatted as a String.", document));
+        }
+
+        return document;
+    }
+
+    /**
+     * 整形処理の入口を表すインターフェースです。
+     */
+    @FunctionalInterface
+    private interface EntryPoint {
+
+        /**
+         * JSONファイルを整形処理の入力として読み込み、読み込んだ入力を整形する処理を返却します。 入力の読み込みは計測に含まれません。
+         *
+         * @param document JSONファイル
+         * @return 読み込んだ入力を整形する処理
+         *
+         * @throws IOException JSONファイルの読み込みに失敗した場合
+         */
+        Task load(Path document) throws IOException;
+    }
+
+    /**
+     * 読み込み済みの入力を整形する処理を表すインターフェースです。
+     */
+    @FunctionalInterface
+    private interface Task {
+
+        /**
+         * 入力を整形します。
+         *
+         * @throws IOException 整形結果の書き込みに失敗した場合
+         */
+        void run() throws IOException;
+    }
+}